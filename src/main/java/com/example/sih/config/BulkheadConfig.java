@@ -0,0 +1,31 @@
+package com.example.sih.config;
+
+import com.example.sih.service.DbBulkhead;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class BulkheadConfig {
+
+    // static so the post-processor is registered before the DataSource is created. The flag is read
+    // from the Environment (same default as DbBulkhead) so that with the bulkhead off neither
+    // DbBulkhead nor its MeterRegistry is pulled into the DataSource's creation.
+    @Bean
+    public static BeanPostProcessor bulkheadDataSourceWrapper(Environment environment,
+                                                              ObjectProvider<DbBulkhead> bulkhead) {
+        boolean enabled = environment.getProperty("db.bulkhead.enabled", Boolean.class,
+                environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false));
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!enabled || !(bean instanceof DataSource ds) || bean instanceof BulkheadDataSource) return bean;
+                return new BulkheadDataSource(ds, bulkhead.getObject());
+            }
+        };
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.sih.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class MetricsConfig {
+
+    // static so the post-processor is registered before the DataSource is created
+    @Bean
+    @ConditionalOnProperty(name = "db.metrics.enabled", havingValue = "true", matchIfMissing = true)
+    public static BeanPostProcessor statementMetricsDataSourceWrapper() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource ds) || bean instanceof StatementMetricsDataSource) return bean;
+                return new StatementMetricsDataSource(ds);
+            }
+        };
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.sih.config;
+
+import com.example.sih.types.Scope;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class RecalcConfig {
+
+    // one thread per scope for recalcAll plus one per scope for background jobs
+    @Bean
+    public ThreadPoolTaskExecutor recalcExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2 * Scope.values().length);
+        executor.setMaxPoolSize(2 * Scope.values().length);
+        executor.setThreadNamePrefix("recalc-");
+        return executor;
+    }
+}
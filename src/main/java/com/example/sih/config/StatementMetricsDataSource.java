@@ -0,0 +1,78 @@
+package com.example.sih.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Counts and times JDBC statement executions for the current thread between {@link #begin()} and
+ * {@link #end()}. Outside such a window statements only pay one ThreadLocal read.
+ */
+public class StatementMetricsDataSource extends DelegatingDataSource {
+    private static final ThreadLocal<long[]> CURRENT = new ThreadLocal<>(); // {statements, nanos}
+
+    public StatementMetricsDataSource(DataSource target) {
+        super(target);
+    }
+
+    public static void begin() {
+        CURRENT.set(new long[2]);
+    }
+
+    // Returns {statements, nanos} since begin(), or null if nothing was being tracked
+    public static long[] end() {
+        long[] totals = CURRENT.get();
+        CURRENT.remove();
+        return totals;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrapConnection(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrapConnection(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private static Connection wrapConnection(Connection target) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(target, method, args);
+                    if (result instanceof Statement st && method.getReturnType().isInterface()
+                            && Statement.class.isAssignableFrom(method.getReturnType()))
+                        return wrapStatement(st, method.getReturnType());
+                    return result;
+                });
+    }
+
+    private static Object wrapStatement(Statement target, Class<?> type) {
+        return Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    long[] totals = CURRENT.get();
+                    if (totals == null || !method.getName().startsWith("execute")) return invoke(target, method, args);
+                    long start = System.nanoTime();
+                    try {
+                        return invoke(target, method, args);
+                    } finally {
+                        totals[0]++;
+                        totals[1] += System.nanoTime() - start;
+                    }
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getTargetException();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.sih.config;
+
+import com.example.sih.controller.ConditionalGetInterceptor;
+import com.example.sih.controller.DbMetricsInterceptor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+    private final ConditionalGetInterceptor conditionalGetInterceptor;
+    private final ObjectProvider<DbMetricsInterceptor> dbMetricsInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(conditionalGetInterceptor)
+                .addPathPatterns("/api/analytics/**", "/api/cities/**", "/api/localities/**", "/api/departments/**");
+        // absent when db.metrics.enabled=false
+        dbMetricsInterceptor.ifAvailable(i -> registry.addInterceptor(i).addPathPatterns("/api/**"));
+    }
+}
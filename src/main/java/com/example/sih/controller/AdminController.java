@@ -1,27 +1,106 @@
 package com.example.sih.controller;
 
-import com.example.sih.service.RecalculationService;
+import com.example.sih.dto.BulkheadStatus;
+import com.example.sih.dto.CacheStats;
+import com.example.sih.dto.DriftStatus;
+import com.example.sih.dto.JobStatus;
+import com.example.sih.dto.WriteBehindStatus;
+import com.example.sih.service.AnalyticsCache;
+import com.example.sih.service.CounterDeltaBuffer;
+import com.example.sih.service.DbBulkhead;
+import com.example.sih.service.DriftReconciler;
+import com.example.sih.service.RecalculationJobService;
+import com.example.sih.service.RollupService;
+import com.example.sih.types.Scope;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/admin")
 @RequiredArgsConstructor
 public class AdminController {
-    private final RecalculationService service;
+    private final RecalculationJobService jobService;
+    private final CounterDeltaBuffer deltaBuffer;
+    private final RollupService rollupService;
+    private final AnalyticsCache analyticsCache;
+    private final DriftReconciler driftReconciler;
+    private final DbBulkhead dbBulkhead;
+
+    @PostMapping("/recalculate/all")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public List<JobStatus> recalcAll() {
+        return jobService.submitAll();
+    }
 
     @PostMapping("/recalculate/cities")
-    public void recalcCities(){ service.recalcCities(); }
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public JobStatus recalcCities() {
+        return jobService.submit(Scope.CITY);
+    }
 
     @PostMapping("/recalculate/localities")
-    public void recalcLocalities() {
-        service.recalcLocalities();
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public JobStatus recalcLocalities() {
+        return jobService.submit(Scope.LOCALITY);
     }
 
     @PostMapping("/recalculate/departments")
-    public void recalcDepartments() {
-        service.recalcDepartments();
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public JobStatus recalcDepartments() {
+        return jobService.submit(Scope.DEPARTMENT);
+    }
+
+    @GetMapping("/jobs")
+    public List<JobStatus> jobs() {
+        return jobService.list();
+    }
+
+    @GetMapping("/jobs/{id}")
+    public JobStatus job(@PathVariable String id) {
+        return jobService.get(id);
+    }
+
+    @PostMapping("/jobs/{id}/cancel")
+    public JobStatus cancelJob(@PathVariable String id) {
+        return jobService.cancel(id);
+    }
+
+    @PostMapping("/rollups/rebuild")
+    public int rebuildRollups() {
+        return rollupService.backfill();
+    }
+
+    @GetMapping("/counters/write-behind")
+    public WriteBehindStatus writeBehindStatus() {
+        return deltaBuffer.status();
+    }
+
+    @PostMapping("/counters/flush")
+    public WriteBehindStatus flushCounters() {
+        deltaBuffer.flush();
+        return deltaBuffer.status();
+    }
+
+    @GetMapping("/counters/drift")
+    public DriftStatus counterDrift() {
+        return driftReconciler.status();
+    }
+
+    @GetMapping("/db/bulkhead")
+    public BulkheadStatus dbBulkhead() {
+        return dbBulkhead.status();
+    }
+
+    @GetMapping("/cache/analytics")
+    public CacheStats analyticsCacheStats() {
+        return analyticsCache.stats();
     }
-}
\ No newline at end of file
+}
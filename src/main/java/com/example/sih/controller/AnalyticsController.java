@@ -1,53 +1,119 @@
 package com.example.sih.controller;
 
 import com.example.sih.dto.*;
+import com.example.sih.service.AnalyticsCache;
 import com.example.sih.service.AnalyticsService;
+import com.example.sih.service.TimeSeriesService;
+import com.example.sih.types.IssueCategory;
+import com.example.sih.types.Scope;
+import com.example.sih.types.Status;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 
+import static com.example.sih.service.AnalyticsCache.anyOf;
+import static com.example.sih.service.AnalyticsCache.entity;
+
 @RestController
 @RequestMapping("/api/analytics")
 @RequiredArgsConstructor
 public class AnalyticsController {
     private final AnalyticsService service;
+    private final TimeSeriesService timeSeriesService;
+    private final AnalyticsCache cache;
 
     @GetMapping("/cities/leaderboard")
     public List<LeaderboardRow> cityLb(@RequestParam(defaultValue="TOTAL") Metric metric,
                                        @RequestParam(defaultValue="10") int limit){
-        return service.cityLeaderboard(metric,limit);
+        return cache.get("cityLeaderboard", List.of(metric, limit), List.of(anyOf(Scope.CITY)),
+                () -> service.cityLeaderboard(metric, limit));
+    }
+
+    @GetMapping("/cities/leaderboard/per-capita")
+    public List<LeaderboardRow> cityPerCapitaLb(@RequestParam(defaultValue = "TOTAL") Metric metric,
+                                                @RequestParam(defaultValue = "10") int limit) {
+        return cache.get("cityPerCapitaLeaderboard", List.of(metric, limit), List.of(anyOf(Scope.CITY)),
+                () -> service.cityPerCapitaLeaderboard(metric, limit));
+    }
+
+    @GetMapping("/cities/{id}/localities/leaderboard")
+    public List<LeaderboardRow> cityLocalityLb(@PathVariable Long id,
+                                               @RequestParam(defaultValue = "TOTAL") Metric metric,
+                                               @RequestParam(defaultValue = "10") int limit) {
+        return cache.get("cityLocalityLeaderboard", List.of(id, metric, limit), List.of(anyOf(Scope.LOCALITY)),
+                () -> service.cityLocalityLeaderboard(id, metric, limit));
+    }
+
+    @GetMapping("/cities/summary")
+    public List<CitySummary> citySummaries(@RequestParam List<Long> ids) {
+        return service.citySummaries(ids);
     }
 
     @GetMapping("/cities/{id}/summary")
     public CitySummary summary(@PathVariable Long id){
-        return service.citySummary(id);
+        return cache.get("citySummary", List.of(id), List.of(entity(Scope.CITY, id)),
+                () -> service.citySummary(id));
     }
 
     @GetMapping("/localities/leaderboard")
     public List<LeaderboardRow> localityLb(@RequestParam(defaultValue = "TOTAL") Metric metric,
                                            @RequestParam(defaultValue = "10") int limit) {
-        return service.localityLeaderboard(metric, limit);
+        return cache.get("localityLeaderboard", List.of(metric, limit), List.of(anyOf(Scope.LOCALITY)),
+                () -> service.localityLeaderboard(metric, limit));
+    }
+
+    @GetMapping("/localities/summary")
+    public List<LocalitySummary> localitySummaries(@RequestParam List<Long> ids) {
+        return service.localitySummaries(ids);
     }
 
     @GetMapping("/localities/{id}/summary")
     public LocalitySummary localitySummary(@PathVariable Long id) {
-        return service.localitySummary(id);
+        return cache.get("localitySummary", List.of(id), List.of(entity(Scope.LOCALITY, id)),
+                () -> service.localitySummary(id));
     }
 
     @GetMapping("/departments/leaderboard")
     public List<LeaderboardRow> departmentLb(@RequestParam(defaultValue = "TOTAL") Metric metric,
                                              @RequestParam(defaultValue = "10") int limit) {
-        return service.departmentLeaderboard(metric, limit);
+        return cache.get("departmentLeaderboard", List.of(metric, limit), List.of(anyOf(Scope.DEPARTMENT)),
+                () -> service.departmentLeaderboard(metric, limit));
+    }
+
+    @GetMapping("/departments/summary")
+    public List<DepartmentSummary> departmentSummaries(@RequestParam List<Long> ids) {
+        return service.departmentSummaries(ids);
     }
 
     @GetMapping("/departments/{id}/summary")
     public DepartmentSummary departmentSummary(@PathVariable Long id) {
-        return service.departmentSummary(id);
+        return cache.get("departmentSummary", List.of(id), List.of(entity(Scope.DEPARTMENT, id)),
+                () -> service.departmentSummary(id));
+    }
+
+    @GetMapping("/heatmap")
+    public HeatmapResponse heatmap(@RequestParam String bbox,
+                                   @RequestParam(defaultValue = "12") int zoom,
+                                   @RequestParam(required = false) Status status,
+                                   @RequestParam(required = false) IssueCategory category) {
+        return service.heatmap(bbox, zoom, status, category);
     }
 
     @GetMapping("/cities/{id}/timeseries/new-issues")
     public List<TimeSeriesPoint> dailyNewIssues(@PathVariable Long id) {
         return service.getDailyNewIssues(id);
     }
-}
\ No newline at end of file
+
+    @GetMapping("/timeseries")
+    public List<TimeSeriesPoint> timeSeries(@RequestParam Scope scope,
+                                            @RequestParam Long id,
+                                            @RequestParam(defaultValue = "CREATED") SeriesMeasure measure,
+                                            @RequestParam(defaultValue = "DAY") Granularity granularity,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return timeSeriesService.series(scope, id, measure, granularity, from, to);
+    }
+}
@@ -1,8 +1,10 @@
 package com.example.sih.controller;
 
+import com.example.sih.dto.JobStatus;
 import com.example.sih.entity.City;
 import com.example.sih.service.CityService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -34,7 +36,8 @@ public class CityController {
     }
 
     @PostMapping("/recalculate")
-    public void recalculate() {
-        service.recalculateCityCounts();
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public JobStatus recalculate() {
+        return service.recalculateCityCounts();
     }
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+package com.example.sih.controller;
+
+import com.example.sih.service.DataVersion;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.Enumeration;
+
+/**
+ * Conditional GET for the analytics and reference endpoints. The ETag is the current
+ * {@link DataVersion}, taken before the handler runs: a matching If-None-Match is answered with
+ * 304 without reaching the controller, and a write committing mid-request can only make the tag
+ * older than the body, which costs the client one extra refetch but never a stale 304.
+ * <p>
+ * If-None-Match is read as RFC 9110 defines it: {@code *}, or a list of entity tags, possibly
+ * over several header lines, compared weakly ({@code W/} ignored on either side).
+ */
+@Component
+@RequiredArgsConstructor
+public class ConditionalGetInterceptor implements HandlerInterceptor {
+    private final DataVersion dataVersion;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!HttpMethod.GET.matches(request.getMethod())) return true;
+        String etag = dataVersion.etag();
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        if (matches(request.getHeaders(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean matches(Enumeration<String> ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        String opaque = opaqueTag(etag);
+        while (ifNoneMatch.hasMoreElements()) {
+            String value = ifNoneMatch.nextElement().trim();
+            if (value.equals("*")) return true;
+            if (listContains(value, opaque)) return true;
+        }
+        return false;
+    }
+
+    // Walks a #entity-tag list; a comma may sit inside a quoted tag, so no plain split.
+    // A malformed list matches nothing, which only costs the client a full response.
+    private static boolean listContains(String list, String opaque) {
+        int i = 0;
+        int n = list.length();
+        while (i < n) {
+            char c = list.charAt(i);
+            if (c == ',' || c == ' ' || c == '\t') {
+                i++;
+                continue;
+            }
+            if (list.startsWith("W/", i)) i += 2;
+            if (i >= n || list.charAt(i) != '"') return false;
+            int end = list.indexOf('"', i + 1);
+            if (end < 0) return false;
+            if (list.substring(i, end + 1).equals(opaque)) return true;
+            i = end + 1;
+        }
+        return false;
+    }
+
+    private static String opaqueTag(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
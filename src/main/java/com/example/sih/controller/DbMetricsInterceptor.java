@@ -0,0 +1,61 @@
+package com.example.sih.controller;
+
+import com.example.sih.config.StatementMetricsDataSource;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how many SQL statements a request ran and how long they took, tagged by the matched
+ * route pattern (not the raw path) so the series stay low-cardinality. Only present together with
+ * the statement-counting DataSource wrapper in {@link com.example.sih.config.MetricsConfig}.
+ */
+@Component
+@ConditionalOnProperty(name = "db.metrics.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+public class DbMetricsInterceptor implements AsyncHandlerInterceptor {
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        StatementMetricsDataSource.begin();
+        return true;
+    }
+
+    // Streaming responses continue on another thread; stop tracking this one
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        StatementMetricsDataSource.end();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        long[] totals = StatementMetricsDataSource.end();
+        if (totals == null) return;
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        DistributionSummary.builder("db.request.statements")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(totals[0]);
+        Timer.builder("db.request.time")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(totals[1], TimeUnit.NANOSECONDS);
+    }
+}
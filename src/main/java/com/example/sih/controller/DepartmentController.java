@@ -1,8 +1,10 @@
 package com.example.sih.controller;
 
+import com.example.sih.dto.JobStatus;
 import com.example.sih.entity.Department;
 import com.example.sih.service.DepartmentService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -34,7 +36,8 @@ public class DepartmentController {
     }
 
     @PostMapping("/recalculate")
-    public void recalculate() {
-        service.recalculateDepartmentCounts();
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public JobStatus recalculate() {
+        return service.recalculateDepartmentCounts();
     }
 }
\ No newline at end of file
@@ -1,32 +1,100 @@
 package com.example.sih.controller;
 
+import com.example.sih.dto.BatchItemResult;
+import com.example.sih.dto.BulkStatusRequest;
+import com.example.sih.dto.BulkStatusResult;
 import com.example.sih.dto.CreateIssueRequest;
+import com.example.sih.dto.ImportResult;
+import com.example.sih.dto.IssueFilter;
+import com.example.sih.dto.IssuePage;
+import com.example.sih.dto.IssueView;
+import com.example.sih.dto.NearbyIssue;
 import com.example.sih.dto.UpdateIssueLocationRequest;
-import com.example.sih.entity.IssueReport;
 import com.example.sih.service.IssueReportService;
+import com.example.sih.service.IssueTransferService;
+import com.example.sih.types.IssueCategory;
 import com.example.sih.types.Status;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/issues")
 @RequiredArgsConstructor
 public class IssueReportController {
     private final IssueReportService service;
+    private final IssueTransferService transferService;
 
     @PostMapping
-    public IssueReport create(@Valid @RequestBody CreateIssueRequest req){
+    public IssueView create(@Valid @RequestBody CreateIssueRequest req){
         return service.createIssue(req);
     }
 
+    @GetMapping
+    public IssuePage list(IssueFilter filter,
+                          @RequestParam(required = false) String cursor,
+                          @RequestParam(defaultValue = "50") int limit){
+        return service.listIssues(filter, cursor, limit);
+    }
+
+    @PostMapping("/batch")
+    public List<BatchItemResult> createBatch(@RequestBody List<CreateIssueRequest> reqs){
+        return service.createIssues(reqs);
+    }
+
+    @GetMapping("/nearby")
+    public List<NearbyIssue> nearby(@RequestParam double lat, @RequestParam double lon,
+                                    @RequestParam(defaultValue = "500") double radius,
+                                    @RequestParam(required = false) Status status,
+                                    @RequestParam(required = false) IssueCategory category,
+                                    @RequestParam(defaultValue = "50") int limit){
+        return service.findNearby(lat, lon, radius, status, category, limit);
+    }
+
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> export(IssueFilter filter){
+        StreamingResponseBody body = out -> transferService.exportIssues(filter, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=issues.ndjson")
+                .body(body);
+    }
+
+    @PostMapping("/import")
+    public ImportResult importIssues(HttpServletRequest request) throws IOException {
+        return transferService.importIssues(request.getInputStream());
+    }
+
+    @PostMapping("/{id}/confirm")
+    public long confirm(@PathVariable Long id){
+        return service.confirmIssue(id);
+    }
+
+    @GetMapping("/{id}/confirmations")
+    public long confirmations(@PathVariable Long id){
+        return service.getConfirmations(id);
+    }
+
+    @PatchMapping("/status")
+    public BulkStatusResult bulkStatus(@Valid @RequestBody BulkStatusRequest req){
+        return service.updateStatuses(req.getIds(), req.getStatus());
+    }
+
     @PatchMapping("/{id}/status")
-    public IssueReport status(@PathVariable Long id,@RequestParam Status status){
+    public IssueView status(@PathVariable Long id,@RequestParam Status status){
         return service.updateStatus(id,status);
     }
 
     @PatchMapping("/{id}/location")
-    public IssueReport move(@PathVariable Long id,@Valid @RequestBody UpdateIssueLocationRequest req){
+    public IssueView move(@PathVariable Long id,@Valid @RequestBody UpdateIssueLocationRequest req){
         return service.updateLocation(id,req);
     }
 
@@ -1,8 +1,10 @@
 package com.example.sih.controller;
 
+import com.example.sih.dto.JobStatus;
 import com.example.sih.entity.Locality;
 import com.example.sih.service.LocalityService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -39,7 +41,8 @@ public class LocalityController {
     }
 
     @PostMapping("/recalculate")
-    public void recalculate() {
-        service.recalculateLocalityCounts();
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public JobStatus recalculate() {
+        return service.recalculateLocalityCounts();
     }
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.example.sih.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class BatchItemResult {
+    private int index; // position in the submitted list
+    private Long id; // new issue, or the open issue this item confirmed; null if rejected
+    private boolean created; // false for confirmations and rejections
+    private String error;
+
+    public static BatchItemResult created(int index, Long id) {
+        return new BatchItemResult(index, id, true, null);
+    }
+
+    public static BatchItemResult confirmed(int index, Long id) {
+        return new BatchItemResult(index, id, false, null);
+    }
+
+    public static BatchItemResult rejected(int index, String error) {
+        return new BatchItemResult(index, null, false, error);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.sih.dto;
+
+import com.example.sih.types.Status;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkStatusRequest {
+    @NotEmpty
+    private List<Long> ids;
+
+    @NotNull
+    private Status status;
+}
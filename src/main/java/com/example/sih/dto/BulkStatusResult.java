@@ -0,0 +1,16 @@
+package com.example.sih.dto;
+
+import com.example.sih.types.Status;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class BulkStatusResult {
+    private Status status;
+    private List<Long> changed;
+    private List<Long> unchanged; // already in the target status
+    private List<Long> notFound;
+}
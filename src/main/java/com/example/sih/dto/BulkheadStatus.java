@@ -0,0 +1,18 @@
+package com.example.sih.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class BulkheadStatus {
+    private boolean enabled;
+    private int maxConcurrent;
+    private int inUse;
+    private int queued;
+    private long acquired;
+    private long waited; // acquisitions that had to queue for a permit
+    private long timedOut;
+    private double avgWaitMs; // over acquisitions that queued
+    private double maxWaitMs;
+}
@@ -0,0 +1,19 @@
+package com.example.sih.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class CacheStats {
+    private boolean enabled;
+    private int size;
+    private int maxEntries;
+    private long hits;
+    private long coalesced; // misses that waited on an in-flight computation instead of running their own
+    private long misses;
+    private double hitRate; // (hits + coalesced) / lookups
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+}
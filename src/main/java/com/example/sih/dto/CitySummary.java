@@ -11,4 +11,7 @@ public class CitySummary {
     private CountSummary counts;
     private Double averageResolutionHours; // null if no RESOLVED issues
     private Double resolutionRate; // resolved / (active+resolved)
+    private Double p50ResolutionHours; // percentiles from the resolution histogram, null if none
+    private Double p90ResolutionHours;
+    private Double p99ResolutionHours;
 }
\ No newline at end of file
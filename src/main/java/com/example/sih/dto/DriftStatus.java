@@ -0,0 +1,20 @@
+package com.example.sih.dto;
+
+import com.example.sih.types.Scope;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+public class DriftStatus {
+    private boolean enabled;
+    private long runs;
+    private long skippedForLoad; // ticks skipped because the connection pool was busy
+    private long skippedForConflict; // windows rolled back because a writer touched the same rows
+    private Map<Scope, Long> idsChecked;
+    private Map<Scope, Long> driftCorrected; // entities whose counters were wrong and got repaired
+    private LocalDateTime lastDriftAt; // null if no drift seen since startup
+}
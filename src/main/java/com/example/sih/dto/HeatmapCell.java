@@ -0,0 +1,12 @@
+package com.example.sih.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class HeatmapCell {
+    private double minLat; // south-west corner of the cell
+    private double minLon;
+    private long count;
+}
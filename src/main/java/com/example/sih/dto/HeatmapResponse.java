@@ -0,0 +1,14 @@
+package com.example.sih.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class HeatmapResponse {
+    private int level;
+    private double cellDegrees; // side length of every cell in this response
+    private List<HeatmapCell> cells;
+}
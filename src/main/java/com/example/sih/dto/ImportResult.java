@@ -0,0 +1,14 @@
+package com.example.sih.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ImportResult {
+    private long read;
+    private long inserted;
+    private long skipped; // ids that already existed
+    private long rejected; // rows in chunks the database refused
+    private String error; // null if the whole stream was imported
+}
@@ -0,0 +1,23 @@
+package com.example.sih.dto;
+
+import com.example.sih.types.IssueCategory;
+import com.example.sih.types.Status;
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+@Data
+public class IssueFilter {
+    private Long cityId;
+    private Long localityId;
+    private Long departmentId;
+    private Status status;
+    private IssueCategory category;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate from; // inclusive, on created_at
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate to; // inclusive, on created_at
+}
@@ -0,0 +1,13 @@
+package com.example.sih.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class IssuePage {
+    private List<IssueRecord> items;
+    private String nextCursor; // null on the last page
+}
@@ -0,0 +1,30 @@
+package com.example.sih.dto;
+
+import com.example.sih.types.IssueCategory;
+import com.example.sih.types.Status;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Flat, id-only shape of an issue_report row used by NDJSON export/import
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IssueRecord {
+    private Long id;
+    private String description;
+    private Double latitude;
+    private Double longitude;
+    private String photoUrl;
+    private Status status;
+    private IssueCategory category;
+    private Long departmentId;
+    private Long cityId;
+    private Long localityId;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime resolvedAt;
+    private LocalDateTime rejectedAt;
+}
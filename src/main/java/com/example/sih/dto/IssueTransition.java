@@ -0,0 +1,24 @@
+package com.example.sih.dto;
+
+import com.example.sih.types.IssueCategory;
+import com.example.sih.types.Status;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// One issue moved by a bulk status update, with the values it had before the update
+@Data
+@AllArgsConstructor
+public class IssueTransition {
+    private Long id;
+    private Status from;
+    private Long cityId;
+    private Long localityId;
+    private Long departmentId;
+    private IssueCategory category;
+    private Long gridCell;
+    private LocalDateTime createdAt;
+    private LocalDateTime resolvedAt;
+    private LocalDateTime rejectedAt; // falls back to updated_at, like the rollup
+}
@@ -0,0 +1,33 @@
+package com.example.sih.dto;
+
+import com.example.sih.types.IssueCategory;
+import com.example.sih.types.Status;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Compact issue response: the related city, locality and department as id plus name only
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IssueView {
+    private Long id;
+    private String description;
+    private Double latitude;
+    private Double longitude;
+    private String photoUrl;
+    private Status status;
+    private IssueCategory category;
+    private Long departmentId;
+    private String departmentName;
+    private Long cityId;
+    private String cityName;
+    private Long localityId;
+    private String localityName;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime resolvedAt;
+    private LocalDateTime rejectedAt;
+}
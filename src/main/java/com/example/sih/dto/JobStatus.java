@@ -0,0 +1,24 @@
+package com.example.sih.dto;
+
+import com.example.sih.types.JobState;
+import com.example.sih.types.Scope;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class JobStatus {
+    private String id;
+    private Scope scope;
+    private JobState state;
+    private long chunksDone;
+    private long chunksTotal;
+    private double progress; // chunksDone / chunksTotal, 1.0 once succeeded
+    private long rowsCorrected;
+    private double idsPerSecond;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt; // null while running
+    private String error;
+}
@@ -10,8 +10,13 @@ public class LeaderboardRow {
     private String name;
     private long active;
     private long resolved;
+    private Double perCapita; // issues per 100k population, only set on per-capita rankings
+
+    public LeaderboardRow(Long id, String name, long active, long resolved) {
+        this(id, name, active, resolved, null);
+    }
 
     public long getTotal() {
         return active + resolved;
     }
-}
\ No newline at end of file
+}
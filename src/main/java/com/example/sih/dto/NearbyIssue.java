@@ -0,0 +1,18 @@
+package com.example.sih.dto;
+
+import com.example.sih.types.IssueCategory;
+import com.example.sih.types.Status;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class NearbyIssue {
+    private Long id;
+    private String description;
+    private double latitude;
+    private double longitude;
+    private Status status;
+    private IssueCategory category;
+    private double distanceMeters;
+}
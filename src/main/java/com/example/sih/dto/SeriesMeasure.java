@@ -0,0 +1,5 @@
+package com.example.sih.dto;
+
+public enum SeriesMeasure {
+    CREATED, RESOLVED, BACKLOG
+}
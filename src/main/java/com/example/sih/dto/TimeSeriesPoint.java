@@ -1,13 +1,21 @@
 package com.example.sih.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @Data
 @AllArgsConstructor
 public class TimeSeriesPoint {
     private LocalDate date;
     private long count;
-}
\ No newline at end of file
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private LocalDateTime time; // bucket start, only set on hourly series
+
+    public TimeSeriesPoint(LocalDate date, long count) {
+        this(date, count, null);
+    }
+}
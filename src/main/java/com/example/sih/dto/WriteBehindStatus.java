@@ -0,0 +1,14 @@
+package com.example.sih.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class WriteBehindStatus {
+    private boolean enabled;
+    private int pendingEntities;
+    private long flushLagMs; // age of the oldest unflushed delta
+    private long sinceLastFlushMs;
+    private long lastFlushDurationMs;
+}
@@ -0,0 +1,35 @@
+package com.example.sih.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * "+1" confirmations of an issue, split over a fixed number of slot rows per issue so that
+ * concurrent upvotes on a popular issue update different rows instead of queueing on one.
+ * The confirmation count is the sum over all slots.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IssueConfirmation {
+    @EmbeddedId
+    private Key id;
+
+    @Column(nullable = false)
+    private Long count = 0L;
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        @Column(name = "issue_id")
+        private Long issueId;
+
+        private Integer slot;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.sih.entity;
+
+import com.example.sih.types.IssueCategory;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Per-day issue activity for one (city, locality, department, category) combination.
+ * created is counted on the creation day, resolved/rejected on the day the issue entered
+ * that status. Maintained by {@link com.example.sih.service.RollupService}.
+ */
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_rollup_city_day", columnList = "city_id, day"),
+        @Index(name = "idx_rollup_locality_day", columnList = "locality_id, day"),
+        @Index(name = "idx_rollup_department_day", columnList = "department_id, day")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IssueDailyRollup {
+    @EmbeddedId
+    private Key id;
+
+    @Column(nullable = false)
+    private Long created = 0L;
+
+    @Column(nullable = false)
+    private Long resolved = 0L;
+
+    @Column(nullable = false)
+    private Long rejected = 0L;
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate day;
+
+        @Column(name = "city_id")
+        private Long cityId;
+
+        @Column(name = "locality_id")
+        private Long localityId;
+
+        @Column(name = "department_id")
+        private Long departmentId;
+
+        @Enumerated(EnumType.STRING)
+        private IssueCategory category;
+    }
+}
@@ -2,6 +2,8 @@ package com.example.sih.entity;
 
 import com.example.sih.types.IssueCategory;
 import com.example.sih.types.Status;
+import com.example.sih.util.GeoGrid;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import lombok.*;
@@ -11,13 +13,29 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_issue_grid_cell_status", columnList = "grid_cell, status"),
+        // keyset listing: every filter column followed by the (created_at, id) sort key
+        @Index(name = "idx_issue_created_id", columnList = "created_at, id"),
+        @Index(name = "idx_issue_city_created_id", columnList = "city_id, created_at, id"),
+        @Index(name = "idx_issue_locality_created_id", columnList = "locality_id, created_at, id"),
+        @Index(name = "idx_issue_department_created_id", columnList = "department_id, created_at, id"),
+        @Index(name = "idx_issue_status_created_id", columnList = "status, created_at, id"),
+        @Index(name = "idx_issue_category_created_id", columnList = "category, created_at, id"),
+        // counter aggregations and countBy*AndStatus; partial indexes live in indexes.sql
+        @Index(name = "idx_issue_city_status", columnList = "city_id, status"),
+        @Index(name = "idx_issue_locality_status", columnList = "locality_id, status"),
+        @Index(name = "idx_issue_department_status", columnList = "department_id, status")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class IssueReport {
+    // Sequence with a pooled allocation (not IDENTITY) so Hibernate can batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "issue_report_seq")
+    @SequenceGenerator(name = "issue_report_seq", sequenceName = "issue_report_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -40,13 +58,20 @@ public class IssueReport {
     @Column(nullable = false)
     private IssueCategory category;
 
-    @ManyToOne
+    // Lazy: the write path only needs the ids, which the proxies carry without a SELECT
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Department department;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private City city;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Locality locality;
 
     @CreationTimestamp
@@ -56,4 +81,17 @@ public class IssueReport {
     private LocalDateTime updatedAt;
 
     private LocalDateTime resolvedAt; // only if status = RESOLVED
+
+    private LocalDateTime rejectedAt; // only if status = REJECTED
+
+    // GeoGrid cell of (latitude, longitude), backs the nearby search
+    @JsonIgnore
+    @Column(name = "grid_cell")
+    private Long gridCell;
+
+    @PrePersist
+    @PreUpdate
+    void syncGridCell() {
+        if (latitude != null && longitude != null) gridCell = GeoGrid.cellOf(latitude, longitude);
+    }
 }
\ No newline at end of file
@@ -1,10 +1,12 @@
 package com.example.sih.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import lombok.*;
 
 @Entity
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -28,4 +30,11 @@ public class Locality {
 
     @Column(nullable = false)
     private Long resolvedIssueCount = 0L;
-}
\ No newline at end of file
+
+    // Running totals over RESOLVED issues, so the average resolution time needs no scan
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long resolutionSecondsSum = 0L;
+
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long resolutionCount = 0L;
+}
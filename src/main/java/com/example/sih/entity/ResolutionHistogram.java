@@ -0,0 +1,39 @@
+package com.example.sih.entity;
+
+import com.example.sih.types.Scope;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * One bucket of a locality's or department's resolution-time histogram (see
+ * {@link com.example.sih.util.LatencyHistogram} for the layout). Buckets never hit have no row.
+ * City histograms are not stored; they are the sum over the city's localities.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ResolutionHistogram {
+    @EmbeddedId
+    private Key id;
+
+    @Column(nullable = false)
+    private Long count = 0L;
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        @Enumerated(EnumType.STRING)
+        private Scope scope;
+
+        @Column(name = "entity_id")
+        private Long entityId;
+
+        private Integer bucket;
+    }
+}
@@ -12,6 +12,9 @@ public interface CityRepository extends JpaRepository<City, Long> {
     List<City> findAllByOrderByActiveIssueCountDesc();
     List<City> findAllByOrderByResolvedIssueCountDesc();
 
+    @Query("select c.id from City c")
+    List<Long> findAllIds();
+
     @Query("select c.activeIssueCount from City c where c.id = :id")
     Long getActiveIssueCount(Long id);
 
@@ -33,4 +36,56 @@ public interface CityRepository extends JpaRepository<City, Long> {
     @Modifying
     @Query("update City c set c.resolvedIssueCount = c.resolvedIssueCount - :delta where c.id = :id")
     int decrementResolvedIssueCount(Long id, long delta);
-}
\ No newline at end of file
+
+    @Modifying
+    @Query("update City c set c.activeIssueCount = c.activeIssueCount + :activeDelta, " +
+            "c.resolvedIssueCount = c.resolvedIssueCount + :resolvedDelta where c.id = :id")
+    int applyCounterDelta(Long id, long activeDelta, long resolvedDelta);
+
+    @Modifying
+    @Query("update City c set c.resolutionSecondsSum = c.resolutionSecondsSum + :secondsDelta, " +
+            "c.resolutionCount = c.resolutionCount + :countDelta where c.id = :id")
+    int applyResolutionDelta(Long id, long secondsDelta, long countDelta);
+
+    @Modifying
+    @Query("update City c set c.activeIssueCount = c.activeIssueCount + :activeDelta, " +
+            "c.resolvedIssueCount = c.resolvedIssueCount + :resolvedDelta, " +
+            "c.resolutionSecondsSum = c.resolutionSecondsSum + :secondsDelta, " +
+            "c.resolutionCount = c.resolutionCount + :countDelta where c.id = :id")
+    int applyCounterAndResolutionDelta(Long id, long activeDelta, long resolvedDelta, long secondsDelta, long countDelta);
+
+    // Resets the counters of ids in [fromId, toId] from issue_report in one statement. Rows with no
+    // issues are zeroed and only rows that actually drifted are written.
+    @Modifying
+    @Query(value = "UPDATE city t SET active_issue_count = COALESCE(a.active, 0), " +
+            "resolved_issue_count = COALESCE(a.resolved, 0), " +
+            "resolution_seconds_sum = COALESCE(a.seconds, 0), resolution_count = COALESCE(a.n, 0) " +
+            "FROM city x LEFT JOIN (SELECT city_id, " +
+            "COUNT(*) FILTER (WHERE status IN ('SUBMITTED', 'IN_PROGRESS')) AS active, " +
+            "COUNT(*) FILTER (WHERE status IN ('RESOLVED', 'REJECTED')) AS resolved, " +
+            "CAST(SUM(FLOOR(EXTRACT(EPOCH FROM (resolved_at - created_at)))) " +
+            "FILTER (WHERE status = 'RESOLVED' AND resolved_at IS NOT NULL) AS bigint) AS seconds, " +
+            "COUNT(*) FILTER (WHERE status = 'RESOLVED' AND resolved_at IS NOT NULL) AS n " +
+            "FROM issue_report WHERE city_id BETWEEN :fromId AND :toId GROUP BY city_id) a " +
+            "ON a.city_id = x.id " +
+            "WHERE t.id = x.id AND x.id BETWEEN :fromId AND :toId " +
+            "AND (t.active_issue_count <> COALESCE(a.active, 0) " +
+            "OR t.resolved_issue_count <> COALESCE(a.resolved, 0) " +
+            "OR t.resolution_seconds_sum <> COALESCE(a.seconds, 0) " +
+            "OR t.resolution_count <> COALESCE(a.n, 0))",
+            nativeQuery = true)
+    int recalcCountersInRange(Long fromId, Long toId);
+
+    // Whole table in one statement; jobs call the range form in small chunks instead
+    default int recalcCounters() {
+        Long min = minId();
+        Long max = maxId();
+        return min == null || max == null ? 0 : recalcCountersInRange(min, max);
+    }
+
+    @Query("select min(c.id) from City c")
+    Long minId();
+
+    @Query("select max(c.id) from City c")
+    Long maxId();
+}
@@ -14,6 +14,9 @@ public interface DepartmentRepository extends JpaRepository<Department, Long> {
     List<Department> findAllByOrderByActiveIssueCountDesc();
     List<Department> findAllByOrderByResolvedIssueCountDesc();
 
+    @Query("select d.categoryHandled, d.id from Department d where d.categoryHandled is not null order by d.id")
+    List<Object[]> findCategoryAssignments();
+
     @Query("select d.activeIssueCount from Department d where d.id = :id")
     Long getActiveIssueCount(Long id);
 
@@ -35,4 +38,56 @@ public interface DepartmentRepository extends JpaRepository<Department, Long> {
     @Modifying
     @Query("update Department d set d.resolvedIssueCount = d.resolvedIssueCount - :delta where d.id = :id")
     int decrementResolvedIssueCount(Long id, long delta);
-}
\ No newline at end of file
+
+    @Modifying
+    @Query("update Department d set d.activeIssueCount = d.activeIssueCount + :activeDelta, " +
+            "d.resolvedIssueCount = d.resolvedIssueCount + :resolvedDelta where d.id = :id")
+    int applyCounterDelta(Long id, long activeDelta, long resolvedDelta);
+
+    @Modifying
+    @Query("update Department d set d.resolutionSecondsSum = d.resolutionSecondsSum + :secondsDelta, " +
+            "d.resolutionCount = d.resolutionCount + :countDelta where d.id = :id")
+    int applyResolutionDelta(Long id, long secondsDelta, long countDelta);
+
+    @Modifying
+    @Query("update Department d set d.activeIssueCount = d.activeIssueCount + :activeDelta, " +
+            "d.resolvedIssueCount = d.resolvedIssueCount + :resolvedDelta, " +
+            "d.resolutionSecondsSum = d.resolutionSecondsSum + :secondsDelta, " +
+            "d.resolutionCount = d.resolutionCount + :countDelta where d.id = :id")
+    int applyCounterAndResolutionDelta(Long id, long activeDelta, long resolvedDelta, long secondsDelta, long countDelta);
+
+    // Resets the counters of ids in [fromId, toId] from issue_report in one statement. Rows with no
+    // issues are zeroed and only rows that actually drifted are written.
+    @Modifying
+    @Query(value = "UPDATE department t SET active_issue_count = COALESCE(a.active, 0), " +
+            "resolved_issue_count = COALESCE(a.resolved, 0), " +
+            "resolution_seconds_sum = COALESCE(a.seconds, 0), resolution_count = COALESCE(a.n, 0) " +
+            "FROM department x LEFT JOIN (SELECT department_id, " +
+            "COUNT(*) FILTER (WHERE status IN ('SUBMITTED', 'IN_PROGRESS')) AS active, " +
+            "COUNT(*) FILTER (WHERE status IN ('RESOLVED', 'REJECTED')) AS resolved, " +
+            "CAST(SUM(FLOOR(EXTRACT(EPOCH FROM (resolved_at - created_at)))) " +
+            "FILTER (WHERE status = 'RESOLVED' AND resolved_at IS NOT NULL) AS bigint) AS seconds, " +
+            "COUNT(*) FILTER (WHERE status = 'RESOLVED' AND resolved_at IS NOT NULL) AS n " +
+            "FROM issue_report WHERE department_id BETWEEN :fromId AND :toId GROUP BY department_id) a " +
+            "ON a.department_id = x.id " +
+            "WHERE t.id = x.id AND x.id BETWEEN :fromId AND :toId " +
+            "AND (t.active_issue_count <> COALESCE(a.active, 0) " +
+            "OR t.resolved_issue_count <> COALESCE(a.resolved, 0) " +
+            "OR t.resolution_seconds_sum <> COALESCE(a.seconds, 0) " +
+            "OR t.resolution_count <> COALESCE(a.n, 0))",
+            nativeQuery = true)
+    int recalcCountersInRange(Long fromId, Long toId);
+
+    // Whole table in one statement; jobs call the range form in small chunks instead
+    default int recalcCounters() {
+        Long min = minId();
+        Long max = maxId();
+        return min == null || max == null ? 0 : recalcCountersInRange(min, max);
+    }
+
+    @Query("select min(d.id) from Department d")
+    Long minId();
+
+    @Query("select max(d.id) from Department d")
+    Long maxId();
+}
@@ -0,0 +1,23 @@
+package com.example.sih.repository;
+
+import com.example.sih.entity.IssueConfirmation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface IssueConfirmationRepository extends JpaRepository<IssueConfirmation, IssueConfirmation.Key> {
+
+    @Modifying
+    @Query(value = "INSERT INTO issue_confirmation (issue_id, slot, count) VALUES (:issueId, :slot, 1) " +
+            "ON CONFLICT (issue_id, slot) DO UPDATE SET count = issue_confirmation.count + 1",
+            nativeQuery = true)
+    int increment(@Param("issueId") Long issueId, @Param("slot") int slot);
+
+    @Query("select coalesce(sum(c.count), 0) from IssueConfirmation c where c.id.issueId = :issueId")
+    long countForIssue(@Param("issueId") Long issueId);
+
+    @Modifying
+    @Query("delete from IssueConfirmation c where c.id.issueId = :issueId")
+    int deleteByIssueId(@Param("issueId") Long issueId);
+}
@@ -0,0 +1,86 @@
+package com.example.sih.repository;
+
+import com.example.sih.entity.IssueDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface IssueDailyRollupRepository extends JpaRepository<IssueDailyRollup, IssueDailyRollup.Key> {
+
+    @Modifying
+    @Query(value = "INSERT INTO issue_daily_rollup (day, city_id, locality_id, department_id, category, " +
+            "created, resolved, rejected) " +
+            "VALUES (:day, :cityId, :localityId, :departmentId, :category, :created, :resolved, :rejected) " +
+            "ON CONFLICT (day, city_id, locality_id, department_id, category) DO UPDATE SET " +
+            "created = issue_daily_rollup.created + EXCLUDED.created, " +
+            "resolved = issue_daily_rollup.resolved + EXCLUDED.resolved, " +
+            "rejected = issue_daily_rollup.rejected + EXCLUDED.rejected",
+            nativeQuery = true)
+    int upsert(@Param("day") LocalDate day, @Param("cityId") Long cityId, @Param("localityId") Long localityId,
+               @Param("departmentId") Long departmentId, @Param("category") String category,
+               @Param("created") long created, @Param("resolved") long resolved, @Param("rejected") long rejected);
+
+    // --- Backfill ---
+    // Holds off issue writes' upserts until the rebuild commits; taken before the rebuild's snapshot
+    @Modifying
+    @Query(value = "LOCK TABLE issue_daily_rollup IN SHARE ROW EXCLUSIVE MODE", nativeQuery = true)
+    void lockForRebuild();
+
+    @Modifying
+    @Query(value = "DELETE FROM issue_daily_rollup", nativeQuery = true)
+    int deleteAllRows();
+
+    // REJECTED rows from before rejected_at existed fall back to updated_at
+    @Modifying
+    @Query(value = "INSERT INTO issue_daily_rollup (day, city_id, locality_id, department_id, category, " +
+            "created, resolved, rejected) " +
+            "SELECT day, city_id, locality_id, department_id, category, SUM(c), SUM(r), SUM(j) FROM (" +
+            "SELECT CAST(created_at AS date) AS day, city_id, locality_id, department_id, category, " +
+            "1 AS c, 0 AS r, 0 AS j FROM issue_report " +
+            "UNION ALL " +
+            "SELECT CAST(resolved_at AS date), city_id, locality_id, department_id, category, 0, 1, 0 " +
+            "FROM issue_report WHERE status = 'RESOLVED' AND resolved_at IS NOT NULL " +
+            "UNION ALL " +
+            "SELECT CAST(COALESCE(rejected_at, updated_at) AS date), city_id, locality_id, department_id, " +
+            "category, 0, 0, 1 FROM issue_report WHERE status = 'REJECTED'" +
+            ") e WHERE day IS NOT NULL AND city_id IS NOT NULL AND locality_id IS NOT NULL " +
+            "AND department_id IS NOT NULL " +
+            "GROUP BY day, city_id, locality_id, department_id, category",
+            nativeQuery = true)
+    int backfill();
+
+    // --- Time series ---
+    @Query("select r.id.day, sum(r.created) from IssueDailyRollup r " +
+            "where r.id.cityId = :cityId group by r.id.day order by r.id.day")
+    List<Object[]> dailyCreatedByCity(@Param("cityId") Long cityId);
+
+    // Per-day (created, resolved, rejected) within [from, to] for one scope
+    @Query("select r.id.day, sum(r.created), sum(r.resolved), sum(r.rejected) from IssueDailyRollup r " +
+            "where r.id.cityId = :id and r.id.day between :from and :to group by r.id.day order by r.id.day")
+    List<Object[]> dailyByCity(@Param("id") Long id, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("select r.id.day, sum(r.created), sum(r.resolved), sum(r.rejected) from IssueDailyRollup r " +
+            "where r.id.localityId = :id and r.id.day between :from and :to group by r.id.day order by r.id.day")
+    List<Object[]> dailyByLocality(@Param("id") Long id, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("select r.id.day, sum(r.created), sum(r.resolved), sum(r.rejected) from IssueDailyRollup r " +
+            "where r.id.departmentId = :id and r.id.day between :from and :to group by r.id.day order by r.id.day")
+    List<Object[]> dailyByDepartment(@Param("id") Long id, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Open issues at the start of a day: everything created before it minus everything closed before it
+    @Query("select coalesce(sum(r.created - r.resolved - r.rejected), 0) from IssueDailyRollup r " +
+            "where r.id.cityId = :id and r.id.day < :before")
+    long backlogBeforeByCity(@Param("id") Long id, @Param("before") LocalDate before);
+
+    @Query("select coalesce(sum(r.created - r.resolved - r.rejected), 0) from IssueDailyRollup r " +
+            "where r.id.localityId = :id and r.id.day < :before")
+    long backlogBeforeByLocality(@Param("id") Long id, @Param("before") LocalDate before);
+
+    @Query("select coalesce(sum(r.created - r.resolved - r.rejected), 0) from IssueDailyRollup r " +
+            "where r.id.departmentId = :id and r.id.day < :before")
+    long backlogBeforeByDepartment(@Param("id") Long id, @Param("before") LocalDate before);
+}
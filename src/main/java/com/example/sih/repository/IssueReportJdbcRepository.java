@@ -0,0 +1,425 @@
+package com.example.sih.repository;
+
+import com.example.sih.dto.IssueFilter;
+import com.example.sih.dto.IssueRecord;
+import com.example.sih.dto.IssueTransition;
+import com.example.sih.types.IssueCategory;
+import com.example.sih.types.Scope;
+import com.example.sih.types.Status;
+import com.example.sih.util.LatencyHistogram;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+// Plain JDBC access for bulk paths where loading managed entities would not scale
+@Repository
+@RequiredArgsConstructor
+public class IssueReportJdbcRepository {
+    public static final int STREAM_FETCH_SIZE = 1000;
+
+    private static final String SELECT_COLUMNS = "SELECT id, description, latitude, longitude, photo_url, status, " +
+            "category, department_id, city_id, locality_id, created_at, updated_at, resolved_at, rejected_at " +
+            "FROM issue_report";
+
+    private static final String INSERT_UNNEST = "INSERT INTO issue_report (id, description, latitude, longitude, " +
+            "photo_url, status, category, department_id, city_id, locality_id, created_at, updated_at, resolved_at, " +
+            "rejected_at, grid_cell) " +
+            "SELECT COALESCE(u.id, nextval('issue_report_seq')), u.description, u.latitude, u.longitude, " +
+            "u.photo_url, u.status, u.category, u.department_id, u.city_id, u.locality_id, " +
+            "COALESCE(u.created_at, now()), COALESCE(u.updated_at, now()), u.resolved_at, u.rejected_at, " +
+            "FLOOR((u.latitude + 90) / 0.005)::bigint * 72000 + FLOOR((u.longitude + 180) / 0.005)::bigint " +
+            "FROM unnest(?::bigint[], ?::text[], ?::float8[], ?::float8[], ?::text[], ?::text[], ?::text[], " +
+            "?::bigint[], ?::bigint[], ?::bigint[], ?::timestamp[], ?::timestamp[], ?::timestamp[], ?::timestamp[]) " +
+            "AS u(id, description, latitude, longitude, photo_url, status, category, department_id, city_id, " +
+            "locality_id, created_at, updated_at, resolved_at, rejected_at) " +
+            "ON CONFLICT (id) DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Streams matching rows in id order through a server-side cursor. PostgreSQL only honours the
+     * fetch size inside a transaction, so callers must hold one open while consuming.
+     */
+    public void streamIssues(IssueFilter filter, Consumer<IssueRecord> consumer) {
+        StringBuilder sql = new StringBuilder(SELECT_COLUMNS).append(" WHERE 1=1");
+        List<Object> args = new ArrayList<>();
+        appendFilter(sql, args, filter);
+        sql.append(" ORDER BY id");
+
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            for (int i = 0; i < args.size(); i++) ps.setObject(i + 1, args.get(i));
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(mapRecord(rs)));
+    }
+
+    /**
+     * One page of the newest-first listing. Paging continues strictly after the given
+     * (createdAt, id) key, which the (filter column, created_at, id) indexes serve directly,
+     * so a deep page costs the same as the first one.
+     */
+    public List<IssueRecord> findPage(IssueFilter filter, LocalDateTime afterCreatedAt, Long afterId, int limit) {
+        StringBuilder sql = new StringBuilder(SELECT_COLUMNS).append(" WHERE 1=1");
+        List<Object> args = new ArrayList<>();
+        appendFilter(sql, args, filter);
+        if (afterCreatedAt != null && afterId != null) {
+            sql.append(" AND (created_at, id) < (?, ?)");
+            args.add(Timestamp.valueOf(afterCreatedAt));
+            args.add(afterId);
+        }
+        sql.append(" ORDER BY created_at DESC, id DESC LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> mapRecord(rs), args.toArray());
+    }
+
+    private static void appendFilter(StringBuilder sql, List<Object> args, IssueFilter filter) {
+        if (filter.getCityId() != null) {
+            sql.append(" AND city_id = ?");
+            args.add(filter.getCityId());
+        }
+        if (filter.getLocalityId() != null) {
+            sql.append(" AND locality_id = ?");
+            args.add(filter.getLocalityId());
+        }
+        if (filter.getDepartmentId() != null) {
+            sql.append(" AND department_id = ?");
+            args.add(filter.getDepartmentId());
+        }
+        if (filter.getStatus() != null) {
+            sql.append(" AND status = ?");
+            args.add(filter.getStatus().name());
+        }
+        if (filter.getCategory() != null) {
+            sql.append(" AND category = ?");
+            args.add(filter.getCategory().name());
+        }
+        if (filter.getFrom() != null) {
+            sql.append(" AND created_at >= ?");
+            args.add(Timestamp.valueOf(filter.getFrom().atStartOfDay()));
+        }
+        if (filter.getTo() != null) {
+            sql.append(" AND created_at < ?");
+            args.add(Timestamp.valueOf(filter.getTo().plusDays(1).atStartOfDay()));
+        }
+    }
+
+    /**
+     * Inserts a chunk in one statement by unnesting column arrays. Rows whose id already exists
+     * are skipped; rows without an id draw one from the sequence.
+     *
+     * @return number of rows actually inserted
+     */
+    public int insertChunk(List<IssueRecord> chunk) {
+        if (chunk.isEmpty()) return 0;
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_UNNEST);
+            int n = chunk.size();
+            Long[] ids = new Long[n];
+            String[] descriptions = new String[n];
+            Double[] latitudes = new Double[n];
+            Double[] longitudes = new Double[n];
+            String[] photoUrls = new String[n];
+            String[] statuses = new String[n];
+            String[] categories = new String[n];
+            Long[] departmentIds = new Long[n];
+            Long[] cityIds = new Long[n];
+            Long[] localityIds = new Long[n];
+            Timestamp[] createdAt = new Timestamp[n];
+            Timestamp[] updatedAt = new Timestamp[n];
+            Timestamp[] resolvedAt = new Timestamp[n];
+            Timestamp[] rejectedAt = new Timestamp[n];
+            for (int i = 0; i < n; i++) {
+                IssueRecord r = chunk.get(i);
+                ids[i] = r.getId();
+                descriptions[i] = r.getDescription();
+                latitudes[i] = r.getLatitude();
+                longitudes[i] = r.getLongitude();
+                photoUrls[i] = r.getPhotoUrl();
+                statuses[i] = r.getStatus() == null ? null : r.getStatus().name();
+                categories[i] = r.getCategory() == null ? null : r.getCategory().name();
+                departmentIds[i] = r.getDepartmentId();
+                cityIds[i] = r.getCityId();
+                localityIds[i] = r.getLocalityId();
+                createdAt[i] = toTimestamp(r.getCreatedAt());
+                updatedAt[i] = toTimestamp(r.getUpdatedAt());
+                resolvedAt[i] = toTimestamp(r.getResolvedAt());
+                rejectedAt[i] = toTimestamp(r.getRejectedAt());
+            }
+            ps.setArray(1, array(con, "bigint", ids));
+            ps.setArray(2, array(con, "text", descriptions));
+            ps.setArray(3, array(con, "float8", latitudes));
+            ps.setArray(4, array(con, "float8", longitudes));
+            ps.setArray(5, array(con, "text", photoUrls));
+            ps.setArray(6, array(con, "text", statuses));
+            ps.setArray(7, array(con, "text", categories));
+            ps.setArray(8, array(con, "bigint", departmentIds));
+            ps.setArray(9, array(con, "bigint", cityIds));
+            ps.setArray(10, array(con, "bigint", localityIds));
+            ps.setArray(11, array(con, "timestamp", createdAt));
+            ps.setArray(12, array(con, "timestamp", updatedAt));
+            ps.setArray(13, array(con, "timestamp", resolvedAt));
+            ps.setArray(14, array(con, "timestamp", rejectedAt));
+            return ps;
+        });
+    }
+
+    /**
+     * Hourly (created, resolved, rejected) counts for one scope within [from, to). Each branch is
+     * range-restricted on its own timestamp, so the cost follows the window, not the history.
+     */
+    public List<Object[]> hourlyDeltas(Scope scope, Long id, LocalDateTime from, LocalDateTime to) {
+        String column = switch (scope) {
+            case CITY -> "city_id";
+            case LOCALITY -> "locality_id";
+            case DEPARTMENT -> "department_id";
+        };
+        String sql = "SELECT DATE_TRUNC('hour', t) AS h, SUM(c), SUM(r), SUM(j) FROM (" +
+                "SELECT created_at AS t, 1 AS c, 0 AS r, 0 AS j FROM issue_report " +
+                "WHERE " + column + " = ? AND created_at >= ? AND created_at < ? " +
+                "UNION ALL " +
+                "SELECT resolved_at, 0, 1, 0 FROM issue_report " +
+                "WHERE " + column + " = ? AND status = 'RESOLVED' AND resolved_at >= ? AND resolved_at < ? " +
+                "UNION ALL " +
+                "SELECT COALESCE(rejected_at, updated_at), 0, 0, 1 FROM issue_report " +
+                "WHERE " + column + " = ? AND status = 'REJECTED' " +
+                "AND COALESCE(rejected_at, updated_at) >= ? AND COALESCE(rejected_at, updated_at) < ?" +
+                ") e GROUP BY h ORDER BY h";
+        Timestamp start = Timestamp.valueOf(from);
+        Timestamp end = Timestamp.valueOf(to);
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new Object[]{
+                rs.getObject(1, LocalDateTime.class), rs.getLong(2), rs.getLong(3), rs.getLong(4)
+        }, id, start, end, id, start, end, id, start, end);
+    }
+
+    /**
+     * Moves every listed issue that is not already in {@code to} in one UPDATE and returns the
+     * pre-update values of the rows it changed. The rows are locked in id order first, so
+     * concurrent bulk updates cannot deadlock on each other, and the status condition is
+     * re-checked after the lock, so an issue moved concurrently is never counted twice.
+     */
+    public List<IssueTransition> transitionStatus(List<Long> ids, Status to, LocalDateTime at) {
+        String resolvedAt = to == Status.RESOLVED ? "?"
+                : "CASE WHEN old.status = 'RESOLVED' THEN NULL ELSE i.resolved_at END";
+        String rejectedAt = to == Status.REJECTED ? "?"
+                : "CASE WHEN old.status = 'REJECTED' THEN NULL ELSE i.rejected_at END";
+        String sql = "WITH old AS (" +
+                "SELECT id, status, city_id, locality_id, department_id, category, grid_cell, created_at, " +
+                "resolved_at, COALESCE(rejected_at, updated_at) AS rejected_at FROM issue_report " +
+                "WHERE id = ANY(?) AND status <> ? ORDER BY id FOR UPDATE) " +
+                "UPDATE issue_report i SET status = ?, updated_at = ?, " +
+                "resolved_at = " + resolvedAt + ", rejected_at = " + rejectedAt + " " +
+                "FROM old WHERE i.id = old.id AND i.status <> ? " +
+                "RETURNING old.id, old.status, old.city_id, old.locality_id, old.department_id, old.category, " +
+                "old.grid_cell, old.created_at, old.resolved_at, old.rejected_at";
+        Timestamp ts = Timestamp.valueOf(at);
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            int i = 1;
+            ps.setArray(i++, array(con, "bigint", ids.toArray()));
+            ps.setString(i++, to.name());
+            ps.setString(i++, to.name());
+            ps.setTimestamp(i++, ts);
+            if (to == Status.RESOLVED || to == Status.REJECTED) ps.setTimestamp(i++, ts);
+            ps.setString(i, to.name());
+            return ps;
+        }, (rs, rowNum) -> new IssueTransition(
+                rs.getLong("id"),
+                Status.valueOf(rs.getString("status")),
+                rs.getObject("city_id", Long.class),
+                rs.getObject("locality_id", Long.class),
+                rs.getObject("department_id", Long.class),
+                enumOrNull(IssueCategory.class, rs.getString("category")),
+                rs.getObject("grid_cell", Long.class),
+                rs.getObject("created_at", LocalDateTime.class),
+                rs.getObject("resolved_at", LocalDateTime.class),
+                rs.getObject("rejected_at", LocalDateTime.class)));
+    }
+
+    /**
+     * Moves one issue from {@code from} to {@code to} only if it is still in {@code from}, and in the
+     * same statement applies everything that follows from the transition: city/locality/department
+     * counters (unless {@code writeCounters} is false, for write-behind mode), resolution totals,
+     * resolution histograms and the daily rollup. Since {@code from} is fixed, every delta is known
+     * up front and only the CTEs that have work are emitted.
+     *
+     * @return the issue's values before the update, or empty if its status was no longer {@code from}
+     */
+    public Optional<IssueTransition> compareAndSetStatus(Long id, Status from, Status to, LocalDateTime at,
+                                                         boolean writeCounters) {
+        Timestamp ts = Timestamp.valueOf(at);
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("WITH old AS (SELECT id, city_id, locality_id, department_id, " +
+                "category, grid_cell, created_at, resolved_at, COALESCE(rejected_at, updated_at) AS rejected_at " +
+                "FROM issue_report WHERE id = ? AND status = ? FOR UPDATE), ");
+        args.add(id);
+        args.add(from.name());
+
+        sql.append("upd AS (UPDATE issue_report i SET status = ?, updated_at = ?");
+        args.add(to.name());
+        args.add(ts);
+        if (to == Status.RESOLVED) {
+            sql.append(", resolved_at = ?");
+            args.add(ts);
+        } else if (from == Status.RESOLVED) {
+            sql.append(", resolved_at = NULL");
+        }
+        if (to == Status.REJECTED) {
+            sql.append(", rejected_at = ?");
+            args.add(ts);
+        } else if (from == Status.REJECTED) {
+            sql.append(", rejected_at = NULL");
+        }
+        sql.append(" FROM old WHERE i.id = old.id RETURNING old.*)");
+
+        // resolution events: at most one, since from and to cannot both be RESOLVED
+        boolean resolution = from == Status.RESOLVED || to == Status.RESOLVED;
+        if (from == Status.RESOLVED) {
+            sql.append(", ev AS (SELECT -1 AS sign, CAST(FLOOR(EXTRACT(EPOCH FROM (resolved_at - created_at))) " +
+                    "AS bigint) AS s FROM upd WHERE resolved_at IS NOT NULL AND created_at IS NOT NULL)");
+        } else if (to == Status.RESOLVED) {
+            sql.append(", ev AS (SELECT 1 AS sign, CAST(FLOOR(EXTRACT(EPOCH FROM (CAST(? AS timestamp) - " +
+                    "created_at))) AS bigint) AS s FROM upd WHERE created_at IS NOT NULL)");
+            args.add(ts);
+        }
+
+        long closedDelta = 0;
+        if (isActive(from) && isClosed(to)) closedDelta = 1;
+        else if (isClosed(from) && isActive(to)) closedDelta = -1;
+        boolean counters = writeCounters && closedDelta != 0;
+        if (counters || resolution) {
+            String[][] targets = {{"city", "city_id"}, {"locality", "locality_id"}, {"department", "department_id"}};
+            for (String[] t : targets) {
+                List<String> sets = new ArrayList<>();
+                if (counters) {
+                    sets.add("active_issue_count = t.active_issue_count + ?");
+                    sets.add("resolved_issue_count = t.resolved_issue_count + ?");
+                    args.add(-closedDelta);
+                    args.add(closedDelta);
+                }
+                if (resolution) {
+                    sets.add("resolution_seconds_sum = t.resolution_seconds_sum + " +
+                            "COALESCE((SELECT SUM(sign * s) FROM ev), 0)");
+                    sets.add("resolution_count = t.resolution_count + COALESCE((SELECT SUM(sign) FROM ev), 0)");
+                }
+                sql.append(", ").append(t[0]).append("_upd AS (UPDATE ").append(t[0]).append(" t SET ")
+                        .append(String.join(", ", sets)).append(" FROM upd WHERE t.id = upd.").append(t[1])
+                        .append(")");
+            }
+        }
+        if (resolution) {
+            sql.append(", hist AS (INSERT INTO resolution_histogram (scope, entity_id, bucket, count) " +
+                    "SELECT x.scope, x.entity_id, b.bucket, b.sign FROM " +
+                    "(SELECT 'LOCALITY' AS scope, locality_id AS entity_id FROM upd " +
+                    "UNION ALL SELECT 'DEPARTMENT', department_id FROM upd) x, " +
+                    "(SELECT sign, " + LatencyHistogram.SQL_BUCKET + " AS bucket FROM ev) b " +
+                    "ON CONFLICT (scope, entity_id, bucket) DO UPDATE SET " +
+                    "count = resolution_histogram.count + EXCLUDED.count)");
+        }
+
+        // rollup events: leaving a closed state on its old day, entering one today
+        List<String> events = new ArrayList<>();
+        if (from == Status.RESOLVED) events.add("SELECT resolved_at AS t, -1 AS r, 0 AS j FROM upd");
+        if (from == Status.REJECTED) events.add("SELECT rejected_at AS t, 0 AS r, -1 AS j FROM upd");
+        if (to == Status.RESOLVED || to == Status.REJECTED) {
+            events.add(to == Status.RESOLVED ? "SELECT CAST(? AS timestamp) AS t, 1 AS r, 0 AS j FROM upd"
+                    : "SELECT CAST(? AS timestamp) AS t, 0 AS r, 1 AS j FROM upd");
+            args.add(ts);
+        }
+        if (!events.isEmpty()) {
+            sql.append(", roll AS (INSERT INTO issue_daily_rollup (day, city_id, locality_id, department_id, " +
+                    "category, created, resolved, rejected) " +
+                    "SELECT CAST(e.t AS date), u.city_id, u.locality_id, u.department_id, u.category, 0, " +
+                    "SUM(e.r), SUM(e.j) FROM upd u, (").append(String.join(" UNION ALL ", events)).append(") e " +
+                    "WHERE e.t IS NOT NULL " +
+                    "GROUP BY CAST(e.t AS date), u.city_id, u.locality_id, u.department_id, u.category " +
+                    "ON CONFLICT (day, city_id, locality_id, department_id, category) DO UPDATE SET " +
+                    "resolved = issue_daily_rollup.resolved + EXCLUDED.resolved, " +
+                    "rejected = issue_daily_rollup.rejected + EXCLUDED.rejected)");
+        }
+
+        sql.append(" SELECT id, city_id, locality_id, department_id, category, grid_cell, created_at, " +
+                "resolved_at, rejected_at FROM upd");
+        List<IssueTransition> rows = jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new IssueTransition(
+                rs.getLong("id"),
+                from,
+                rs.getObject("city_id", Long.class),
+                rs.getObject("locality_id", Long.class),
+                rs.getObject("department_id", Long.class),
+                enumOrNull(IssueCategory.class, rs.getString("category")),
+                rs.getObject("grid_cell", Long.class),
+                rs.getObject("created_at", LocalDateTime.class),
+                rs.getObject("resolved_at", LocalDateTime.class),
+                rs.getObject("rejected_at", LocalDateTime.class)), args.toArray());
+        return rows.stream().findFirst();
+    }
+
+    private static boolean isActive(Status s) {
+        return s == Status.SUBMITTED || s == Status.IN_PROGRESS;
+    }
+
+    private static boolean isClosed(Status s) {
+        return s == Status.RESOLVED || s == Status.REJECTED;
+    }
+
+    // Ids from the list that exist with the given status
+    public List<Long> idsWithStatus(List<Long> ids, Status status) {
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT id FROM issue_report WHERE id = ANY(?) AND status = ?");
+            ps.setArray(1, array(con, "bigint", ids.toArray()));
+            ps.setString(2, status.name());
+            return ps;
+        }, (rs, rowNum) -> rs.getLong(1));
+    }
+
+    // Keeps the pooled sequence ahead of ids that were imported verbatim
+    public void syncIdSequence() {
+        jdbcTemplate.execute("SELECT setval('issue_report_seq', " +
+                "GREATEST((SELECT COALESCE(MAX(id), 0) FROM issue_report) + 50, " +
+                "(SELECT last_value FROM issue_report_seq)))");
+    }
+
+    private static IssueRecord mapRecord(ResultSet rs) throws SQLException {
+        return new IssueRecord(
+                rs.getLong("id"),
+                rs.getString("description"),
+                rs.getObject("latitude", Double.class),
+                rs.getObject("longitude", Double.class),
+                rs.getString("photo_url"),
+                enumOrNull(Status.class, rs.getString("status")),
+                enumOrNull(IssueCategory.class, rs.getString("category")),
+                rs.getObject("department_id", Long.class),
+                rs.getObject("city_id", Long.class),
+                rs.getObject("locality_id", Long.class),
+                rs.getObject("created_at", LocalDateTime.class),
+                rs.getObject("updated_at", LocalDateTime.class),
+                rs.getObject("resolved_at", LocalDateTime.class),
+                rs.getObject("rejected_at", LocalDateTime.class));
+    }
+
+    private static <E extends Enum<E>> E enumOrNull(Class<E> type, String value) {
+        return value == null ? null : Enum.valueOf(type, value);
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime t) {
+        return t == null ? null : Timestamp.valueOf(t);
+    }
+
+    private static Array array(Connection con, String type, Object[] values) throws SQLException {
+        return con.createArrayOf(type, values);
+    }
+}
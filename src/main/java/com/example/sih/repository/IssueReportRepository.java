@@ -1,5 +1,6 @@
 package com.example.sih.repository;
 
+import com.example.sih.dto.IssueView;
 import com.example.sih.entity.City;
 import com.example.sih.entity.IssueReport;
 import com.example.sih.entity.Locality;
@@ -9,7 +10,9 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 public interface IssueReportRepository extends JpaRepository<IssueReport, Long> {
 
@@ -19,6 +22,14 @@ public interface IssueReportRepository extends JpaRepository<IssueReport, Long>
     List<IssueReport> findByCity(City city);
     List<IssueReport> findByLocality(Locality locality);
 
+    // One row with the related names joined in, instead of loading the entity graph
+    @Query("select new com.example.sih.dto.IssueView(i.id, i.description, i.latitude, i.longitude, i.photoUrl, " +
+            "i.status, i.category, d.id, d.name, c.id, c.name, l.id, l.name, " +
+            "i.createdAt, i.updatedAt, i.resolvedAt, i.rejectedAt) " +
+            "from IssueReport i left join i.department d left join i.city c left join i.locality l " +
+            "where i.id = :id")
+    Optional<IssueView> findViewById(@Param("id") Long id);
+
     long countByCityIdAndStatus(Long cityId, Status status);
     long countByLocalityIdAndStatus(Long localityId, Status status);
 
@@ -68,4 +79,37 @@ public interface IssueReportRepository extends JpaRepository<IssueReport, Long>
             "GROUP BY date ORDER BY date",
             nativeQuery = true)
     List<Object[]> getDailyNewIssuesByCity(@Param("cityId") Long cityId);
+
+    @Query("select i.gridCell, i.status, i.category, count(i) from IssueReport i " +
+            "where i.gridCell is not null group by i.gridCell, i.status, i.category")
+    List<Object[]> countByGridCell();
+
+    // --- Nearby search ---
+    // Candidate rows come from the grid_cell index, the exact haversine distance is filtered in the same statement
+    @Query(value = "SELECT id, description, latitude, longitude, status, category, dist FROM (" +
+            "SELECT id, description, latitude, longitude, status, category, " +
+            "2 * 6371000 * ASIN(SQRT(POWER(SIN(RADIANS(latitude - :lat) / 2), 2) + " +
+            "COS(RADIANS(:lat)) * COS(RADIANS(latitude)) * POWER(SIN(RADIANS(longitude - :lon) / 2), 2))) AS dist " +
+            "FROM issue_report " +
+            "WHERE grid_cell IN (:cells) " +
+            "AND (CAST(:status AS text) IS NULL OR status = CAST(:status AS text)) " +
+            "AND (CAST(:category AS text) IS NULL OR category = CAST(:category AS text))" +
+            ") t WHERE dist <= :radius ORDER BY dist LIMIT :limit",
+            nativeQuery = true)
+    List<Object[]> findNearby(@Param("lat") double lat, @Param("lon") double lon,
+                              @Param("cells") List<Long> cells, @Param("radius") double radius,
+                              @Param("status") String status, @Param("category") String category,
+                              @Param("limit") int limit);
+
+    @Query(value = "SELECT id FROM (" +
+            "SELECT id, 2 * 6371000 * ASIN(SQRT(POWER(SIN(RADIANS(latitude - :lat) / 2), 2) + " +
+            "COS(RADIANS(:lat)) * COS(RADIANS(latitude)) * POWER(SIN(RADIANS(longitude - :lon) / 2), 2))) AS dist " +
+            "FROM issue_report " +
+            "WHERE grid_cell IN (:cells) AND status IN ('SUBMITTED','IN_PROGRESS') " +
+            "AND category = :category AND created_at >= :since" +
+            ") t WHERE dist <= :radius ORDER BY dist, id LIMIT 1",
+            nativeQuery = true)
+    Long findOpenDuplicate(@Param("lat") double lat, @Param("lon") double lon,
+                           @Param("cells") List<Long> cells, @Param("radius") double radius,
+                           @Param("category") String category, @Param("since") LocalDateTime since);
 }
\ No newline at end of file
@@ -15,6 +15,9 @@ public interface LocalityRepository extends JpaRepository<Locality, Long> {
     List<Locality> findAllByOrderByActiveIssueCountDesc();
     List<Locality> findAllByOrderByResolvedIssueCountDesc();
 
+    @Query("select l.id, l.city.id from Locality l")
+    List<Object[]> findAllCityIds();
+
     @Query("select l.activeIssueCount from Locality l where l.id = :id")
     Long getActiveIssueCount(Long id);
 
@@ -36,4 +39,56 @@ public interface LocalityRepository extends JpaRepository<Locality, Long> {
     @Modifying
     @Query("update Locality l set l.resolvedIssueCount = l.resolvedIssueCount - :delta where l.id = :id")
     int decrementResolvedIssueCount(Long id, long delta);
-}
\ No newline at end of file
+
+    @Modifying
+    @Query("update Locality l set l.activeIssueCount = l.activeIssueCount + :activeDelta, " +
+            "l.resolvedIssueCount = l.resolvedIssueCount + :resolvedDelta where l.id = :id")
+    int applyCounterDelta(Long id, long activeDelta, long resolvedDelta);
+
+    @Modifying
+    @Query("update Locality l set l.resolutionSecondsSum = l.resolutionSecondsSum + :secondsDelta, " +
+            "l.resolutionCount = l.resolutionCount + :countDelta where l.id = :id")
+    int applyResolutionDelta(Long id, long secondsDelta, long countDelta);
+
+    @Modifying
+    @Query("update Locality l set l.activeIssueCount = l.activeIssueCount + :activeDelta, " +
+            "l.resolvedIssueCount = l.resolvedIssueCount + :resolvedDelta, " +
+            "l.resolutionSecondsSum = l.resolutionSecondsSum + :secondsDelta, " +
+            "l.resolutionCount = l.resolutionCount + :countDelta where l.id = :id")
+    int applyCounterAndResolutionDelta(Long id, long activeDelta, long resolvedDelta, long secondsDelta, long countDelta);
+
+    // Resets the counters of ids in [fromId, toId] from issue_report in one statement. Rows with no
+    // issues are zeroed and only rows that actually drifted are written.
+    @Modifying
+    @Query(value = "UPDATE locality t SET active_issue_count = COALESCE(a.active, 0), " +
+            "resolved_issue_count = COALESCE(a.resolved, 0), " +
+            "resolution_seconds_sum = COALESCE(a.seconds, 0), resolution_count = COALESCE(a.n, 0) " +
+            "FROM locality x LEFT JOIN (SELECT locality_id, " +
+            "COUNT(*) FILTER (WHERE status IN ('SUBMITTED', 'IN_PROGRESS')) AS active, " +
+            "COUNT(*) FILTER (WHERE status IN ('RESOLVED', 'REJECTED')) AS resolved, " +
+            "CAST(SUM(FLOOR(EXTRACT(EPOCH FROM (resolved_at - created_at)))) " +
+            "FILTER (WHERE status = 'RESOLVED' AND resolved_at IS NOT NULL) AS bigint) AS seconds, " +
+            "COUNT(*) FILTER (WHERE status = 'RESOLVED' AND resolved_at IS NOT NULL) AS n " +
+            "FROM issue_report WHERE locality_id BETWEEN :fromId AND :toId GROUP BY locality_id) a " +
+            "ON a.locality_id = x.id " +
+            "WHERE t.id = x.id AND x.id BETWEEN :fromId AND :toId " +
+            "AND (t.active_issue_count <> COALESCE(a.active, 0) " +
+            "OR t.resolved_issue_count <> COALESCE(a.resolved, 0) " +
+            "OR t.resolution_seconds_sum <> COALESCE(a.seconds, 0) " +
+            "OR t.resolution_count <> COALESCE(a.n, 0))",
+            nativeQuery = true)
+    int recalcCountersInRange(Long fromId, Long toId);
+
+    // Whole table in one statement; jobs call the range form in small chunks instead
+    default int recalcCounters() {
+        Long min = minId();
+        Long max = maxId();
+        return min == null || max == null ? 0 : recalcCountersInRange(min, max);
+    }
+
+    @Query("select min(l.id) from Locality l")
+    Long minId();
+
+    @Query("select max(l.id) from Locality l")
+    Long maxId();
+}
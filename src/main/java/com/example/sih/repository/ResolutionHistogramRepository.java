@@ -0,0 +1,95 @@
+package com.example.sih.repository;
+
+import com.example.sih.entity.ResolutionHistogram;
+import com.example.sih.types.Scope;
+import com.example.sih.util.LatencyHistogram;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ResolutionHistogramRepository extends JpaRepository<ResolutionHistogram, ResolutionHistogram.Key> {
+    String RESOLVED_SECONDS = "FLOOR(EXTRACT(EPOCH FROM (resolved_at - created_at)))";
+
+    @Modifying
+    @Query(value = "INSERT INTO resolution_histogram (scope, entity_id, bucket, count) " +
+            "VALUES (:scope, :entityId, :bucket, :delta) " +
+            "ON CONFLICT (scope, entity_id, bucket) DO UPDATE SET " +
+            "count = resolution_histogram.count + EXCLUDED.count",
+            nativeQuery = true)
+    int increment(@Param("scope") String scope, @Param("entityId") Long entityId,
+                  @Param("bucket") int bucket, @Param("delta") long delta);
+
+    @Query("select h.id.bucket, h.count from ResolutionHistogram h " +
+            "where h.id.scope = :scope and h.id.entityId = :entityId")
+    List<Object[]> buckets(@Param("scope") Scope scope, @Param("entityId") Long entityId);
+
+    // A city's histogram is the merge of its localities' histograms
+    @Query(value = "SELECT h.bucket, SUM(h.count) FROM resolution_histogram h " +
+            "JOIN locality l ON l.id = h.entity_id " +
+            "WHERE h.scope = 'LOCALITY' AND l.city_id = :cityId GROUP BY h.bucket",
+            nativeQuery = true)
+    List<Object[]> cityBuckets(@Param("cityId") Long cityId);
+
+    // Batch forms of the two reads above: rows are (entity id, bucket, count)
+    @Query("select h.id.entityId, h.id.bucket, h.count from ResolutionHistogram h " +
+            "where h.id.scope = :scope and h.id.entityId in :entityIds")
+    List<Object[]> bucketsIn(@Param("scope") Scope scope, @Param("entityIds") Collection<Long> entityIds);
+
+    @Query(value = "SELECT l.city_id, h.bucket, SUM(h.count) FROM resolution_histogram h " +
+            "JOIN locality l ON l.id = h.entity_id " +
+            "WHERE h.scope = 'LOCALITY' AND l.city_id IN (:cityIds) GROUP BY l.city_id, h.bucket",
+            nativeQuery = true)
+    List<Object[]> cityBucketsIn(@Param("cityIds") Collection<Long> cityIds);
+
+    // --- Rebuild ---
+    @Modifying
+    @Query("delete from ResolutionHistogram h where h.id.scope = :scope")
+    int deleteScope(@Param("scope") Scope scope);
+
+    @Modifying
+    @Query("delete from ResolutionHistogram h where h.id.scope = :scope " +
+            "and h.id.entityId between :fromId and :toId")
+    int deleteScopeRange(@Param("scope") Scope scope, @Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    @Modifying
+    @Query(value = "INSERT INTO resolution_histogram (scope, entity_id, bucket, count) " +
+            "SELECT 'LOCALITY', locality_id, " + LatencyHistogram.SQL_BUCKET + ", COUNT(*) FROM (" +
+            "SELECT locality_id, " + RESOLVED_SECONDS + " AS s FROM issue_report " +
+            "WHERE status = 'RESOLVED' AND resolved_at IS NOT NULL AND locality_id IS NOT NULL) r " +
+            "GROUP BY 1, 2, 3",
+            nativeQuery = true)
+    int rebuildLocalities();
+
+    @Modifying
+    @Query(value = "INSERT INTO resolution_histogram (scope, entity_id, bucket, count) " +
+            "SELECT 'DEPARTMENT', department_id, " + LatencyHistogram.SQL_BUCKET + ", COUNT(*) FROM (" +
+            "SELECT department_id, " + RESOLVED_SECONDS + " AS s FROM issue_report " +
+            "WHERE status = 'RESOLVED' AND resolved_at IS NOT NULL AND department_id IS NOT NULL) r " +
+            "GROUP BY 1, 2, 3",
+            nativeQuery = true)
+    int rebuildDepartments();
+
+    @Modifying
+    @Query(value = "INSERT INTO resolution_histogram (scope, entity_id, bucket, count) " +
+            "SELECT 'LOCALITY', locality_id, " + LatencyHistogram.SQL_BUCKET + ", COUNT(*) FROM (" +
+            "SELECT locality_id, " + RESOLVED_SECONDS + " AS s FROM issue_report " +
+            "WHERE status = 'RESOLVED' AND resolved_at IS NOT NULL " +
+            "AND locality_id BETWEEN :fromId AND :toId) r " +
+            "GROUP BY 1, 2, 3",
+            nativeQuery = true)
+    int rebuildLocalitiesInRange(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    @Modifying
+    @Query(value = "INSERT INTO resolution_histogram (scope, entity_id, bucket, count) " +
+            "SELECT 'DEPARTMENT', department_id, " + LatencyHistogram.SQL_BUCKET + ", COUNT(*) FROM (" +
+            "SELECT department_id, " + RESOLVED_SECONDS + " AS s FROM issue_report " +
+            "WHERE status = 'RESOLVED' AND resolved_at IS NOT NULL " +
+            "AND department_id BETWEEN :fromId AND :toId) r " +
+            "GROUP BY 1, 2, 3",
+            nativeQuery = true)
+    int rebuildDepartmentsInRange(@Param("fromId") Long fromId, @Param("toId") Long toId);
+}
@@ -0,0 +1,206 @@
+package com.example.sih.service;
+
+import com.example.sih.dto.CacheStats;
+import com.example.sih.types.Scope;
+import com.example.sih.util.TransactionUtils;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Response cache in front of {@link AnalyticsService}, keyed by method name and arguments.
+ * <p>
+ * Each entry names the tags it depends on: one entity ({@link #entity}) or any entity of a
+ * scope ({@link #anyOf}). Invalidating an entity bumps its tag and its scope tag, so a city
+ * counter change drops that city's summary and the city leaderboards but nothing else. Entries
+ * remember the tag versions seen before they were computed, so a computation that raced with
+ * an invalidation is never served afterwards.
+ * <p>
+ * Concurrent misses on one key share a single computation. Entries are held in an access-ordered
+ * map capped at {@code analytics.cache.max-entries} and expire after {@code analytics.cache.ttl-ms}.
+ */
+@Component
+public class AnalyticsCache {
+    private final AtomicLong globalVersion = new AtomicLong();
+    private final Map<Tag, AtomicLong> tagVersions = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long ttlMs;
+    private final Map<Key, Entry> entries;
+
+    public AnalyticsCache(@Value("${analytics.cache.enabled:true}") boolean enabled,
+                          @Value("${analytics.cache.max-entries:10000}") int maxEntries,
+                          @Value("${analytics.cache.ttl-ms:30000}") long ttlMs,
+                          MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() <= AnalyticsCache.this.maxEntries) return false;
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+        FunctionCounter.builder("analytics.cache.gets", hits, AtomicLong::get).tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("analytics.cache.gets", coalesced, AtomicLong::get).tag("result", "coalesced")
+                .register(meterRegistry);
+        FunctionCounter.builder("analytics.cache.gets", misses, AtomicLong::get).tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("analytics.cache.evictions", evictions, AtomicLong::get).register(meterRegistry);
+        FunctionCounter.builder("analytics.cache.expirations", expirations, AtomicLong::get).register(meterRegistry);
+        FunctionCounter.builder("analytics.cache.invalidations", invalidations, AtomicLong::get)
+                .register(meterRegistry);
+        Gauge.builder("analytics.cache.size", this, c -> c.stats().getSize()).register(meterRegistry);
+    }
+
+    public static Tag entity(Scope scope, Long id) {
+        return new Tag(scope, id);
+    }
+
+    public static Tag anyOf(Scope scope) {
+        return new Tag(scope, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String method, List<Object> args, List<Tag> tags, Supplier<T> loader) {
+        if (!enabled) return loader.get();
+        Key key = new Key(method, args);
+        while (true) {
+            Entry existing;
+            Entry fresh = null;
+            synchronized (entries) {
+                existing = entries.get(key);
+                if (existing != null && !isCurrent(existing)) {
+                    entries.remove(key);
+                    existing = null;
+                }
+                if (existing == null) {
+                    fresh = new Entry(tags, snapshot(tags), globalVersion.get(), System.currentTimeMillis());
+                    entries.put(key, fresh);
+                }
+            }
+            if (fresh != null) {
+                misses.incrementAndGet();
+                Throwable failure = null;
+                try {
+                    T value = loader.get();
+                    fresh.future.complete(value);
+                    return value;
+                } catch (Throwable ex) {
+                    failure = ex;
+                    throw ex;
+                } finally {
+                    if (!fresh.future.isDone()) {
+                        // remove before failing the future so waiters retry against a fresh entry
+                        synchronized (entries) {
+                            entries.remove(key, fresh);
+                        }
+                        fresh.future.completeExceptionally(failure);
+                    }
+                }
+            }
+            if (existing.future.isDone()) hits.incrementAndGet();
+            else coalesced.incrementAndGet();
+            try {
+                return (T) existing.future.join();
+            } catch (CompletionException ex) {
+                // the computation we waited on failed; its entry is gone, so retry as a miss
+            }
+        }
+    }
+
+    // Drops entries that depend on this entity or on its whole scope
+    public void invalidate(Scope scope, Long id) {
+        if (id != null) bump(entity(scope, id));
+        bump(anyOf(scope));
+    }
+
+    public void invalidateAfterCommit(Scope scope, Long id) {
+        TransactionUtils.runAfterCommit(() -> invalidate(scope, id));
+    }
+
+    public void invalidateAll() {
+        globalVersion.incrementAndGet();
+        invalidations.incrementAndGet();
+    }
+
+    public CacheStats stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        long h = hits.get() + coalesced.get();
+        long total = h + misses.get();
+        return new CacheStats(enabled, size, maxEntries, hits.get(), coalesced.get(), misses.get(),
+                total == 0 ? 0.0 : h * 1.0 / total, evictions.get(), expirations.get(), invalidations.get());
+    }
+
+    private void bump(Tag tag) {
+        tagVersions.computeIfAbsent(tag, t -> new AtomicLong()).incrementAndGet();
+        invalidations.incrementAndGet();
+    }
+
+    private long[] snapshot(List<Tag> tags) {
+        long[] versions = new long[tags.size()];
+        for (int i = 0; i < versions.length; i++) versions[i] = version(tags.get(i));
+        return versions;
+    }
+
+    private long version(Tag tag) {
+        AtomicLong v = tagVersions.get(tag);
+        return v == null ? 0 : v.get();
+    }
+
+    private boolean isCurrent(Entry e) {
+        if (System.currentTimeMillis() - e.createdAt > ttlMs) {
+            expirations.incrementAndGet();
+            return false;
+        }
+        if (e.globalVersion != globalVersion.get()) return false;
+        for (int i = 0; i < e.versions.length; i++)
+            if (e.versions[i] != version(e.tags.get(i))) return false;
+        return true;
+    }
+
+    public record Tag(Scope scope, Long id) {
+    }
+
+    private record Key(String method, List<Object> args) {
+    }
+
+    private static final class Entry {
+        final List<Tag> tags;
+        final long[] versions;
+        final long globalVersion;
+        final long createdAt;
+        final CompletableFuture<Object> future = new CompletableFuture<>();
+
+        Entry(List<Tag> tags, long[] versions, long globalVersion, long createdAt) {
+            this.tags = tags;
+            this.versions = versions;
+            this.globalVersion = globalVersion;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.example.sih.service;
 import com.example.sih.dto.CitySummary;
 import com.example.sih.dto.CountSummary;
 import com.example.sih.dto.DepartmentSummary;
+import com.example.sih.dto.HeatmapResponse;
 import com.example.sih.dto.LeaderboardRow;
 import com.example.sih.dto.LocalitySummary;
 import com.example.sih.dto.Metric;
@@ -12,31 +13,54 @@ import com.example.sih.entity.Department;
 import com.example.sih.entity.Locality;
 import com.example.sih.repository.CityRepository;
 import com.example.sih.repository.DepartmentRepository;
-import com.example.sih.repository.IssueReportRepository;
+import com.example.sih.repository.IssueDailyRollupRepository;
 import com.example.sih.repository.LocalityRepository;
+import com.example.sih.repository.ResolutionHistogramRepository;
+import com.example.sih.types.IssueCategory;
+import com.example.sih.types.Scope;
+import com.example.sih.types.Status;
+import com.example.sih.util.LatencyHistogram;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
+@Timed(value = "analytics.service", histogram = true)
 public class AnalyticsService {
+    public static final int MAX_SUMMARY_IDS = 1_000;
+    private static final int SUMMARY_CHUNK = 500;
+
     private final CityRepository cityRepo;
     private final LocalityRepository localityRepo;
     private final DepartmentRepository depRepo;
-    private final IssueReportRepository issueRepo;
+    private final IssueDailyRollupRepository rollupRepo;
+    private final ResolutionHistogramRepository histogramRepo;
+    private final LeaderboardIndex leaderboardIndex;
+    private final HeatmapIndex heatmapIndex;
+
+    private Comparator<LeaderboardRow> comparator(Metric metric) {
+        return switch (metric) {
+            case ACTIVE -> Comparator.comparingLong(LeaderboardRow::getActive).reversed();
+            case RESOLVED -> Comparator.comparingLong(LeaderboardRow::getResolved).reversed();
+            default -> Comparator.comparingLong(LeaderboardRow::getTotal).reversed();
+        };
+    }
 
     @Transactional(readOnly = true)
     public List<LeaderboardRow> cityLeaderboard(Metric metric, int limit) {
-        Comparator<LeaderboardRow> cmp;
-        switch (metric) {
-            case ACTIVE -> cmp = Comparator.comparingLong(LeaderboardRow::getActive).reversed();
-            case RESOLVED -> cmp = Comparator.comparingLong(LeaderboardRow::getResolved).reversed();
-            default -> cmp = Comparator.comparingLong(LeaderboardRow::getTotal).reversed();
-        }
+        if (leaderboardIndex.isLoaded()) return leaderboardIndex.top(Scope.CITY, metric, limit);
+        Comparator<LeaderboardRow> cmp = comparator(metric);
         return cityRepo.findAll().stream()
                 .map(c -> new LeaderboardRow(c.getId(), c.getName(),
                         c.getActiveIssueCount(), c.getResolvedIssueCount()))
@@ -48,26 +72,60 @@ public class AnalyticsService {
     @Transactional(readOnly = true)
     public CitySummary citySummary(Long cityId) {
         City c = cityRepo.findById(cityId).orElseThrow();
+        return toCitySummary(c, mergeBuckets(histogramRepo.cityBuckets(cityId)));
+    }
+
+    private CitySummary toCitySummary(City c, long[] histogram) {
         long active = c.getActiveIssueCount();
         long resolved = c.getResolvedIssueCount();
         long total = active + resolved;
         Double avgHrs = null;
         Double rate = 0.0;
-        Double avgSeconds = issueRepo.avgResolutionSecondsByCity(cityId);
-        if (avgSeconds != null) avgHrs = avgSeconds / 3600.0;
+        if (c.getResolutionCount() > 0)
+            avgHrs = c.getResolutionSecondsSum() * 1.0 / c.getResolutionCount() / 3600.0;
         if (total > 0) rate = (resolved * 1.0 / total);
         return new CitySummary(c.getId(), c.getName(),
-                new CountSummary(active, resolved), avgHrs, rate);
+                new CountSummary(active, resolved), avgHrs, rate,
+                quantileHours(histogram, 0.50), quantileHours(histogram, 0.90), quantileHours(histogram, 0.99));
+    }
+
+    @Transactional(readOnly = true)
+    public List<LeaderboardRow> cityPerCapitaLeaderboard(Metric metric, int limit) {
+        if (leaderboardIndex.isLoaded()) return leaderboardIndex.topPerCapita(metric, limit);
+        Comparator<LeaderboardRow> cmp = Comparator.comparingDouble(LeaderboardRow::getPerCapita).reversed();
+        return cityRepo.findAll().stream()
+                .filter(c -> c.getPopulation() != null && c.getPopulation() > 0)
+                .map(c -> {
+                    LeaderboardRow row = new LeaderboardRow(c.getId(), c.getName(),
+                            c.getActiveIssueCount(), c.getResolvedIssueCount());
+                    long value = switch (metric) {
+                        case ACTIVE -> row.getActive();
+                        case RESOLVED -> row.getResolved();
+                        default -> row.getTotal();
+                    };
+                    row.setPerCapita(value * 100_000.0 / c.getPopulation());
+                    return row;
+                })
+                .sorted(cmp)
+                .limit(limit)
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public List<LeaderboardRow> cityLocalityLeaderboard(Long cityId, Metric metric, int limit) {
+        if (leaderboardIndex.isLoaded()) return leaderboardIndex.topLocalitiesInCity(cityId, metric, limit);
+        return localityRepo.findByCityIdOrderByActiveIssueCountDesc(cityId).stream()
+                .map(l -> new LeaderboardRow(l.getId(), l.getName(),
+                        l.getActiveIssueCount(), l.getResolvedIssueCount()))
+                .sorted(comparator(metric))
+                .limit(limit)
+                .toList();
     }
 
     @Transactional(readOnly = true)
     public List<LeaderboardRow> localityLeaderboard(Metric metric, int limit) {
-        Comparator<LeaderboardRow> cmp;
-        switch (metric) {
-            case ACTIVE -> cmp = Comparator.comparingLong(LeaderboardRow::getActive).reversed();
-            case RESOLVED -> cmp = Comparator.comparingLong(LeaderboardRow::getResolved).reversed();
-            default -> cmp = Comparator.comparingLong(LeaderboardRow::getTotal).reversed();
-        }
+        if (leaderboardIndex.isLoaded()) return leaderboardIndex.top(Scope.LOCALITY, metric, limit);
+        Comparator<LeaderboardRow> cmp = comparator(metric);
         return localityRepo.findAll().stream()
                 .map(l -> new LeaderboardRow(l.getId(), l.getName(),
                         l.getActiveIssueCount(), l.getResolvedIssueCount()))
@@ -79,26 +137,27 @@ public class AnalyticsService {
     @Transactional(readOnly = true)
     public LocalitySummary localitySummary(Long localityId) {
         Locality l = localityRepo.findById(localityId).orElseThrow();
+        return toLocalitySummary(l, mergeBuckets(histogramRepo.buckets(Scope.LOCALITY, localityId)));
+    }
+
+    private LocalitySummary toLocalitySummary(Locality l, long[] histogram) {
         long active = l.getActiveIssueCount();
         long resolved = l.getResolvedIssueCount();
         long total = active + resolved;
         Double avgHrs = null;
         Double rate = 0.0;
-        Double avgSeconds = issueRepo.avgResolutionSecondsByLocality(localityId);
-        if (avgSeconds != null) avgHrs = avgSeconds / 3600.0;
+        if (l.getResolutionCount() > 0)
+            avgHrs = l.getResolutionSecondsSum() * 1.0 / l.getResolutionCount() / 3600.0;
         if (total > 0) rate = (resolved * 1.0 / total);
         return new LocalitySummary(l.getId(), l.getName(),
-                new CountSummary(active, resolved), avgHrs, rate);
+                new CountSummary(active, resolved), avgHrs, rate,
+                quantileHours(histogram, 0.50), quantileHours(histogram, 0.90), quantileHours(histogram, 0.99));
     }
 
     @Transactional(readOnly = true)
     public List<LeaderboardRow> departmentLeaderboard(Metric metric, int limit) {
-        Comparator<LeaderboardRow> cmp;
-        switch (metric) {
-            case ACTIVE -> cmp = Comparator.comparingLong(LeaderboardRow::getActive).reversed();
-            case RESOLVED -> cmp = Comparator.comparingLong(LeaderboardRow::getResolved).reversed();
-            default -> cmp = Comparator.comparingLong(LeaderboardRow::getTotal).reversed();
-        }
+        if (leaderboardIndex.isLoaded()) return leaderboardIndex.top(Scope.DEPARTMENT, metric, limit);
+        Comparator<LeaderboardRow> cmp = comparator(metric);
         return depRepo.findAll().stream()
                 .map(d -> new LeaderboardRow(d.getId(), d.getName(),
                         d.getActiveIssueCount(), d.getResolvedIssueCount()))
@@ -110,25 +169,105 @@ public class AnalyticsService {
     @Transactional(readOnly = true)
     public DepartmentSummary departmentSummary(Long departmentId) {
         Department d = depRepo.findById(departmentId).orElseThrow();
+        return toDepartmentSummary(d, mergeBuckets(histogramRepo.buckets(Scope.DEPARTMENT, departmentId)));
+    }
+
+    private DepartmentSummary toDepartmentSummary(Department d, long[] histogram) {
         long active = d.getActiveIssueCount();
         long resolved = d.getResolvedIssueCount();
         long total = active + resolved;
         Double avgHrs = null;
         Double rate = 0.0;
-        Double avgSeconds = issueRepo.avgResolutionSecondsByDepartment(departmentId);
-        if (avgSeconds != null) avgHrs = avgSeconds / 3600.0;
+        if (d.getResolutionCount() > 0)
+            avgHrs = d.getResolutionSecondsSum() * 1.0 / d.getResolutionCount() / 3600.0;
         if (total > 0) rate = (resolved * 1.0 / total);
         return new DepartmentSummary(d.getId(), d.getName(),
-                new CountSummary(active, resolved), avgHrs, rate);
+                new CountSummary(active, resolved), avgHrs, rate,
+                quantileHours(histogram, 0.50), quantileHours(histogram, 0.90), quantileHours(histogram, 0.99));
+    }
+
+    @Transactional(readOnly = true)
+    public List<CitySummary> citySummaries(List<Long> ids) {
+        return summaries(ids, cityRepo::findAllById, histogramRepo::cityBucketsIn, City::getId, this::toCitySummary);
+    }
+
+    @Transactional(readOnly = true)
+    public List<LocalitySummary> localitySummaries(List<Long> ids) {
+        return summaries(ids, localityRepo::findAllById,
+                chunk -> histogramRepo.bucketsIn(Scope.LOCALITY, chunk), Locality::getId, this::toLocalitySummary);
+    }
+
+    @Transactional(readOnly = true)
+    public List<DepartmentSummary> departmentSummaries(List<Long> ids) {
+        return summaries(ids, depRepo::findAllById,
+                chunk -> histogramRepo.bucketsIn(Scope.DEPARTMENT, chunk), Department::getId, this::toDepartmentSummary);
+    }
+
+    /**
+     * Batch summaries: per chunk of at most {@link #SUMMARY_CHUNK} ids, one IN-list read of the
+     * entities (counters and resolution totals live on the row) and one grouped histogram read.
+     * Results follow the order of the requested ids; unknown ids are left out.
+     */
+    private <E, S> List<S> summaries(List<Long> ids, Function<List<Long>, List<E>> load,
+                                     Function<List<Long>, List<Object[]>> buckets,
+                                     Function<E, Long> idOf, BiFunction<E, long[], S> toSummary) {
+        List<Long> distinct = ids == null ? List.of() : ids.stream().filter(Objects::nonNull).distinct().toList();
+        if (distinct.isEmpty()) throw new IllegalArgumentException("ids is required");
+        if (distinct.size() > MAX_SUMMARY_IDS)
+            throw new IllegalArgumentException("At most " + MAX_SUMMARY_IDS + " ids per request");
+
+        Map<Long, S> byId = new HashMap<>();
+        for (int from = 0; from < distinct.size(); from += SUMMARY_CHUNK) {
+            List<Long> chunk = distinct.subList(from, Math.min(distinct.size(), from + SUMMARY_CHUNK));
+            Map<Long, long[]> histograms = new HashMap<>();
+            for (Object[] r : buckets.apply(chunk)) {
+                long[] counts = histograms.computeIfAbsent(((Number) r[0]).longValue(),
+                        k -> new long[LatencyHistogram.BUCKETS]);
+                int bucket = ((Number) r[1]).intValue();
+                if (bucket >= 0 && bucket < counts.length) counts[bucket] += ((Number) r[2]).longValue();
+            }
+            for (E e : load.apply(chunk)) {
+                Long id = idOf.apply(e);
+                byId.put(id, toSummary.apply(e, histograms.getOrDefault(id, new long[LatencyHistogram.BUCKETS])));
+            }
+        }
+        return distinct.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
+
+    private static long[] mergeBuckets(List<Object[]> buckets) {
+        long[] counts = new long[LatencyHistogram.BUCKETS];
+        for (Object[] r : buckets) {
+            int bucket = ((Number) r[0]).intValue();
+            if (bucket >= 0 && bucket < counts.length) counts[bucket] += ((Number) r[1]).longValue();
+        }
+        return counts;
+    }
+
+    private static Double quantileHours(long[] histogram, double q) {
+        Double seconds = LatencyHistogram.quantileSeconds(histogram, q);
+        return seconds == null ? null : seconds / 3600.0;
+    }
+
+    // bbox is "minLon,minLat,maxLon,maxLat"; answered entirely from the in-memory grid aggregate
+    public HeatmapResponse heatmap(String bbox, int zoom, Status status, IssueCategory category) {
+        String[] parts = bbox.split(",");
+        if (parts.length != 4) throw new IllegalArgumentException("bbox must be minLon,minLat,maxLon,maxLat");
+        double[] v = new double[4];
+        try {
+            for (int i = 0; i < 4; i++) v[i] = Double.parseDouble(parts[i].trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("bbox must be minLon,minLat,maxLon,maxLat");
+        }
+        if (v[0] >= v[2] || v[1] >= v[3] || v[0] < -180 || v[2] > 180 || v[1] < -90 || v[3] > 90)
+            throw new IllegalArgumentException("Invalid bbox " + bbox);
+        return heatmapIndex.query(v[0], v[1], v[2], v[3], zoom, status, category);
     }
 
     @Transactional(readOnly = true)
     public List<TimeSeriesPoint> getDailyNewIssues(Long cityId) {
-        List<Object[]> raw = issueRepo.getDailyNewIssuesByCity(cityId);
+        List<Object[]> raw = rollupRepo.dailyCreatedByCity(cityId);
         return raw.stream()
-                .map(r -> new TimeSeriesPoint(
-                        ((java.sql.Timestamp) r[0]).toLocalDateTime().toLocalDate(),
-                        (Long) r[1]))
+                .map(r -> new TimeSeriesPoint((LocalDate) r[0], (Long) r[1]))
                 .toList();
     }
 }
\ No newline at end of file
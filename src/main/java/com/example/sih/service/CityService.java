@@ -1,7 +1,10 @@
 package com.example.sih.service;
 
+import com.example.sih.dto.JobStatus;
 import com.example.sih.entity.City;
 import com.example.sih.repository.CityRepository;
+import com.example.sih.types.Scope;
+import com.example.sih.util.TransactionUtils;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -13,11 +16,20 @@ import java.util.List;
 @RequiredArgsConstructor
 public class CityService {
     private final CityRepository cityRepository;
-    private final RecalculationService recalculationService;
+    private final RecalculationJobService recalculationJobService;
+    private final LeaderboardIndex leaderboardIndex;
+    private final DataVersion dataVersion;
+    private final AnalyticsCache analyticsCache;
+    private final ReferenceDataCache referenceData;
 
     @Transactional
     public City createCity(City city) {
-        return cityRepository.save(city);
+        City saved = cityRepository.save(city);
+        TransactionUtils.runAfterCommit(() -> leaderboardIndex.put(saved));
+        analyticsCache.invalidateAfterCommit(Scope.CITY, saved.getId());
+        referenceData.invalidateAfterCommit();
+        dataVersion.bumpAfterCommit();
+        return saved;
     }
 
     @Transactional(readOnly = true)
@@ -33,10 +45,13 @@ public class CityService {
     @Transactional
     public void deleteCity(Long id) {
         cityRepository.deleteById(id);
+        TransactionUtils.runAfterCommit(() -> leaderboardIndex.remove(Scope.CITY, id));
+        analyticsCache.invalidateAfterCommit(Scope.CITY, id);
+        referenceData.invalidateAfterCommit();
+        dataVersion.bumpAfterCommit();
     }
 
-    @Transactional
-    public void recalculateCityCounts() {
-        recalculationService.recalcCities();
+    public JobStatus recalculateCityCounts() {
+        return recalculationJobService.submit(Scope.CITY);
     }
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package com.example.sih.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Orders commits that carry in-memory side effects (buffered counter deltas, leaderboard deltas)
+ * against rebuilds of that state from the database.
+ * <p>
+ * A writing transaction holds the gate shared from just before its commit until its after-commit
+ * effects have run. A rebuild holds it exclusively for the instant it takes its snapshot, so every
+ * commit is either in the snapshot with its effects already applied, or after the snapshot with
+ * its effects still to come. The gate is never held while waiting on a row lock, only across a
+ * commit or a snapshot, so it cannot deadlock with the database.
+ */
+@Component
+@RequiredArgsConstructor
+public class CommitGate {
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Runs the effect once the current transaction commits, or right away when there is none
+    public void runAfterCommit(Runnable effect) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            lock.readLock().lock();
+            try {
+                effect.run();
+            } finally {
+                lock.readLock().unlock();
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean held;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                lock.readLock().lock();
+                held = true;
+            }
+
+            @Override
+            public void afterCommit() {
+                effect.run();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (!held) return;
+                held = false;
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Takes the current transaction's snapshot with the gate held exclusively and runs
+     * {@code atSnapshot} at that same instant. Must be the first statement of a REPEATABLE READ
+     * transaction, otherwise the snapshot was already taken.
+     */
+    public <T> T pinSnapshot(Supplier<T> atSnapshot) {
+        if (lock.getReadHoldCount() > 0)
+            throw new IllegalStateException("Cannot pin a snapshot from inside a gated commit");
+        lock.writeLock().lock();
+        try {
+            jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+            return atSnapshot.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.sih.service;
+
+import com.example.sih.dto.WriteBehindStatus;
+import com.example.sih.repository.CityRepository;
+import com.example.sih.repository.DepartmentRepository;
+import com.example.sih.repository.LocalityRepository;
+import com.example.sih.types.Scope;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write-behind accumulator for the denormalized issue counters.
+ * <p>
+ * Deltas are summed per entity in memory (ConcurrentHashMap bins act as lock stripes) and
+ * flushed on a fixed delay as a single UPDATE per entity, so concurrent writers no longer
+ * queue on the same city/locality/department row locks. Only committed deltas are buffered.
+ * Since issue_report is the durable record, counters are rebuilt from it on startup
+ * ({@link WriteBehindStartup}), which replays anything still buffered when the previous process died.
+ * <p>
+ * A flushed delta leaves the buffer only once its UPDATE has committed, and both happen inside
+ * the {@link CommitGate}, so at any snapshot a rebuild takes the stored counter plus the buffered
+ * delta is the true count. A rebuild of a range drops exactly the deltas its snapshot already
+ * counts ({@link #beforeRebuild}) and keeps the ones committed after it.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CounterDeltaBuffer {
+    private final CityRepository cityRepository;
+    private final LocalityRepository localityRepository;
+    private final DepartmentRepository departmentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final DataVersion dataVersion;
+    private final AnalyticsCache analyticsCache;
+    private final CommitGate commitGate;
+
+    @Value("${counters.write-behind.enabled:false}")
+    private boolean enabled;
+
+    private final Map<Scope, ConcurrentHashMap<Long, PendingDelta>> pending = new EnumMap<>(Scope.class);
+    private volatile long lastFlushAt = System.currentTimeMillis();
+    private volatile long lastFlushDurationMs;
+
+    {
+        for (Scope scope : Scope.values()) pending.put(scope, new ConcurrentHashMap<>());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void add(Scope scope, Long id, long activeDelta, long resolvedDelta) {
+        if (id == null || (activeDelta == 0 && resolvedDelta == 0)) return;
+        pending.get(scope).compute(id, (k, v) -> {
+            if (v == null) v = new PendingDelta(System.currentTimeMillis());
+            v.active += activeDelta;
+            v.resolved += resolvedDelta;
+            return v;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${counters.write-behind.flush-interval-ms:1000}")
+    public void flush() {
+        long start = System.currentTimeMillis();
+        boolean wrote = false;
+        for (Scope scope : Scope.values()) {
+            ConcurrentHashMap<Long, PendingDelta> map = pending.get(scope);
+            for (Long id : map.keySet()) {
+                long[] d = copy(map, id);
+                if (d == null || (d[0] == 0 && d[1] == 0)) continue;
+                try {
+                    transactionTemplate.executeWithoutResult(s -> {
+                        write(scope, id, d[0], d[1]);
+                        commitGate.runAfterCommit(() -> subtract(scope, id, d[0], d[1]));
+                    });
+                    wrote = true;
+                    analyticsCache.invalidate(scope, id);
+                } catch (RuntimeException ex) {
+                    // still buffered, the next flush retries it
+                    log.warn("Counter flush failed for {} {}, keeping it buffered: {}", scope, id, ex.getMessage());
+                }
+            }
+        }
+        if (wrote) dataVersion.bump();
+        lastFlushAt = System.currentTimeMillis();
+        lastFlushDurationMs = lastFlushAt - start;
+    }
+
+    /**
+     * Called first thing in a REPEATABLE READ transaction that rewrites the counters of ids
+     * [from, to] of the scope from issue_report. Pins the transaction's snapshot and, once it
+     * commits, takes out of the buffer the deltas that were buffered at that snapshot, since the
+     * rebuilt counters already include them. Deltas buffered later stay and are flushed on top.
+     */
+    public void beforeRebuild(Scope scope, long from, long to) {
+        if (!enabled) return;
+        Map<Long, long[]> counted = commitGate.pinSnapshot(() -> {
+            Map<Long, long[]> out = new HashMap<>();
+            ConcurrentHashMap<Long, PendingDelta> map = pending.get(scope);
+            for (Long id : map.keySet()) {
+                if (id < from || id > to) continue;
+                long[] d = copy(map, id);
+                if (d != null) out.put(id, d);
+            }
+            return out;
+        });
+        if (counted.isEmpty()) return;
+        commitGate.runAfterCommit(() -> counted.forEach((id, d) -> subtract(scope, id, d[0], d[1])));
+    }
+
+    /**
+     * Copy of every buffered delta by scope and id. Taken while a snapshot is pinned, it is
+     * exactly what the counters stored at that snapshot are still missing.
+     */
+    public Map<Scope, Map<Long, long[]>> pendingDeltas() {
+        Map<Scope, Map<Long, long[]>> out = new EnumMap<>(Scope.class);
+        for (Scope scope : Scope.values()) {
+            Map<Long, long[]> deltas = new HashMap<>();
+            ConcurrentHashMap<Long, PendingDelta> map = pending.get(scope);
+            for (Long id : map.keySet()) {
+                long[] d = copy(map, id);
+                if (d != null) deltas.put(id, d);
+            }
+            out.put(scope, deltas);
+        }
+        return out;
+    }
+
+    public WriteBehindStatus status() {
+        long now = System.currentTimeMillis();
+        long oldest = now;
+        int entities = 0;
+        for (ConcurrentHashMap<Long, PendingDelta> map : pending.values()) {
+            for (PendingDelta d : map.values()) {
+                oldest = Math.min(oldest, d.firstAt);
+                entities++;
+            }
+        }
+        return new WriteBehindStatus(enabled, entities, now - oldest, now - lastFlushAt, lastFlushDurationMs);
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private static long[] copy(ConcurrentHashMap<Long, PendingDelta> map, Long id) {
+        long[] out = new long[2];
+        PendingDelta d = map.computeIfPresent(id, (k, v) -> {
+            out[0] = v.active;
+            out[1] = v.resolved;
+            return v;
+        });
+        return d == null ? null : out;
+    }
+
+    private void subtract(Scope scope, Long id, long activeDelta, long resolvedDelta) {
+        pending.get(scope).computeIfPresent(id, (k, v) -> {
+            v.active -= activeDelta;
+            v.resolved -= resolvedDelta;
+            return v.active == 0 && v.resolved == 0 ? null : v;
+        });
+    }
+
+    private void write(Scope scope, Long id, long activeDelta, long resolvedDelta) {
+        switch (scope) {
+            case CITY -> cityRepository.applyCounterDelta(id, activeDelta, resolvedDelta);
+            case LOCALITY -> localityRepository.applyCounterDelta(id, activeDelta, resolvedDelta);
+            case DEPARTMENT -> departmentRepository.applyCounterDelta(id, activeDelta, resolvedDelta);
+        }
+    }
+
+    private static final class PendingDelta {
+        private final long firstAt;
+        private long active;
+        private long resolved;
+
+        private PendingDelta(long firstAt) {
+            this.firstAt = firstAt;
+        }
+    }
+}
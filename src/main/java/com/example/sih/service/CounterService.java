@@ -1,20 +1,40 @@
 package com.example.sih.service;
 
+import com.example.sih.dto.IssueTransition;
 import com.example.sih.entity.IssueReport;
 import com.example.sih.repository.CityRepository;
 import com.example.sih.repository.DepartmentRepository;
 import com.example.sih.repository.LocalityRepository;
+import com.example.sih.repository.ResolutionHistogramRepository;
+import com.example.sih.types.Scope;
 import com.example.sih.types.Status;
+import com.example.sih.util.LatencyHistogram;
+import com.example.sih.util.TransactionUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
 @Service
 @RequiredArgsConstructor
 public class CounterService {
     private final CityRepository cityRepository;
     private final LocalityRepository localityRepository;
     private final DepartmentRepository departmentRepository;
+    private final CounterDeltaBuffer deltaBuffer;
+    private final LeaderboardIndex leaderboardIndex;
+    private final ResolutionHistogramRepository histogramRepository;
+    private final AnalyticsCache analyticsCache;
+    private final MeterRegistry meterRegistry;
+    private final CommitGate commitGate;
 
     private boolean isActive(Status s) {
         return s == Status.SUBMITTED || s == Status.IN_PROGRESS;
@@ -26,9 +46,18 @@ public class CounterService {
 
     @Transactional
     public void onIssueCreated(Long cityId, Long localityId, Long departmentId) {
-        cityRepository.incrementActiveIssueCount(cityId, 1L);
-        localityRepository.incrementActiveIssueCount(localityId, 1L);
-        departmentRepository.incrementActiveIssueCount(departmentId, 1L);
+        apply(Scope.CITY, cityId, 1L, 0L);
+        apply(Scope.LOCALITY, localityId, 1L, 0L);
+        apply(Scope.DEPARTMENT, departmentId, 1L, 0L);
+        countEvent("created", Status.SUBMITTED, 1);
+    }
+
+    @Transactional
+    public void onIssuesCreated(Map<Long, Long> byCity, Map<Long, Long> byLocality, Map<Long, Long> byDepartment) {
+        byCity.forEach((id, n) -> apply(Scope.CITY, id, n, 0L));
+        byLocality.forEach((id, n) -> apply(Scope.LOCALITY, id, n, 0L));
+        byDepartment.forEach((id, n) -> apply(Scope.DEPARTMENT, id, n, 0L));
+        countEvent("created", Status.SUBMITTED, byCity.values().stream().mapToLong(Long::longValue).sum());
     }
 
     @Transactional
@@ -36,58 +65,202 @@ public class CounterService {
         Long cityId = issue.getCity().getId();
         Long localityId = issue.getLocality().getId();
         Long departmentId = issue.getDepartment().getId();
-        if (isActive(issue.getStatus())) {
-            cityRepository.decrementActiveIssueCount(cityId, 1L);
-            localityRepository.decrementActiveIssueCount(localityId, 1L);
-            departmentRepository.decrementActiveIssueCount(departmentId, 1L);
-        } else if (isClosed(issue.getStatus())) {
-            cityRepository.decrementResolvedIssueCount(cityId, 1L);
-            localityRepository.decrementResolvedIssueCount(localityId, 1L);
-            departmentRepository.decrementResolvedIssueCount(departmentId, 1L);
+        long activeDelta = isActive(issue.getStatus()) ? -1L : 0L;
+        long resolvedDelta = isClosed(issue.getStatus()) ? -1L : 0L;
+        apply(Scope.CITY, cityId, activeDelta, resolvedDelta);
+        apply(Scope.LOCALITY, localityId, activeDelta, resolvedDelta);
+        apply(Scope.DEPARTMENT, departmentId, activeDelta, resolvedDelta);
+        if (issue.getStatus() == Status.RESOLVED) {
+            Long seconds = resolutionSeconds(issue.getCreatedAt(), issue.getResolvedAt());
+            if (seconds != null) applyResolution(cityId, localityId, departmentId, seconds, -1);
+        }
+        countEvent("deleted", issue.getStatus(), 1);
+    }
+
+    public boolean writesCountersDirectly() {
+        return !deltaBuffer.isEnabled();
+    }
+
+    /**
+     * After-commit side of a single transition whose rows were already written by
+     * {@link com.example.sih.repository.IssueReportJdbcRepository#compareAndSetStatus}: leaderboard
+     * deltas, cache invalidation and, in write-behind mode, the buffered counter delta.
+     */
+    public void onStatusTransitionWritten(IssueTransition c, Status to) {
+        long delta = closedDelta(c.getFrom(), to);
+        track(Scope.CITY, c.getCityId(), -delta, delta);
+        track(Scope.LOCALITY, c.getLocalityId(), -delta, delta);
+        track(Scope.DEPARTMENT, c.getDepartmentId(), -delta, delta);
+        if (c.getFrom() == Status.RESOLVED || to == Status.RESOLVED) {
+            analyticsCache.invalidateAfterCommit(Scope.CITY, c.getCityId());
+            analyticsCache.invalidateAfterCommit(Scope.LOCALITY, c.getLocalityId());
+            analyticsCache.invalidateAfterCommit(Scope.DEPARTMENT, c.getDepartmentId());
         }
+        countEvent("transition", to, 1);
     }
 
+    /**
+     * Bulk status transition: deltas are summed per entity in memory and each
+     * entity's counters, resolution totals and histogram buckets are written once. Entities are
+     * visited in id order so concurrent bulk updates lock counter rows in the same order.
+     */
     @Transactional
-    public void onStatusTransition(IssueReport issue, Status from, Status to) {
-        Long cityId = issue.getCity().getId();
-        Long localityId = issue.getLocality().getId();
-        Long departmentId = issue.getDepartment().getId();
+    public void onStatusTransitions(List<IssueTransition> changes, Status to, LocalDateTime at) {
+        // per entity: {active, resolved, resolution seconds, resolution count}
+        Map<Scope, TreeMap<Long, long[]>> deltas = new EnumMap<>(Scope.class);
+        Map<Scope, TreeMap<Long, TreeMap<Integer, Long>>> buckets = new EnumMap<>(Scope.class);
+        for (Scope scope : Scope.values()) {
+            deltas.put(scope, new TreeMap<>());
+            buckets.put(scope, new TreeMap<>());
+        }
 
-        boolean wasActive = isActive(from);
-        boolean nowActive = isActive(to);
-        boolean wasClosed = isClosed(from);
-        boolean nowClosed = isClosed(to);
-
-        if (wasActive && nowClosed) {
-            cityRepository.decrementActiveIssueCount(cityId, 1L);
-            localityRepository.decrementActiveIssueCount(localityId, 1L);
-            departmentRepository.decrementActiveIssueCount(departmentId, 1L);
-            cityRepository.incrementResolvedIssueCount(cityId, 1L);
-            localityRepository.incrementResolvedIssueCount(localityId, 1L);
-            departmentRepository.incrementResolvedIssueCount(departmentId, 1L);
-        } else if (wasClosed && nowActive) {
-            cityRepository.decrementResolvedIssueCount(cityId, 1L);
-            localityRepository.decrementResolvedIssueCount(localityId, 1L);
-            departmentRepository.decrementResolvedIssueCount(departmentId, 1L);
-            cityRepository.incrementActiveIssueCount(cityId, 1L);
-            localityRepository.incrementActiveIssueCount(localityId, 1L);
-            departmentRepository.incrementActiveIssueCount(departmentId, 1L);
+        for (IssueTransition c : changes) {
+            Status from = c.getFrom();
+            long delta = closedDelta(from, to);
+            if (delta != 0) {
+                add(deltas.get(Scope.CITY), c.getCityId(), 0, -delta, delta);
+                add(deltas.get(Scope.LOCALITY), c.getLocalityId(), 0, -delta, delta);
+                add(deltas.get(Scope.DEPARTMENT), c.getDepartmentId(), 0, -delta, delta);
+            }
+            if (from == Status.RESOLVED) addResolution(deltas, buckets, c,
+                    resolutionSeconds(c.getCreatedAt(), c.getResolvedAt()), -1);
+            if (to == Status.RESOLVED) addResolution(deltas, buckets, c,
+                    resolutionSeconds(c.getCreatedAt(), at), 1);
         }
+
+        deltas.forEach((scope, byId) -> byId.forEach((id, d) -> applyWithResolution(scope, id, d)));
+        for (Scope scope : List.of(Scope.LOCALITY, Scope.DEPARTMENT)) {
+            buckets.get(scope).forEach((id, byBucket) -> byBucket.forEach((bucket, n) -> {
+                if (n != 0) histogramRepository.increment(scope.name(), id, bucket, n);
+            }));
+        }
+        countEvent("transition", to, changes.size());
+    }
+
+    // +1 when an issue moves from active to closed, -1 the other way round
+    private long closedDelta(Status from, Status to) {
+        if (isActive(from) && isClosed(to)) return 1L;
+        if (isClosed(from) && isActive(to)) return -1L;
+        return 0L;
+    }
+
+    private static void add(Map<Long, long[]> deltas, Long id, int offset, long first, long second) {
+        long[] d = deltas.computeIfAbsent(id, k -> new long[4]);
+        d[offset] += first;
+        d[offset + 1] += second;
+    }
+
+    private static void addResolution(Map<Scope, TreeMap<Long, long[]>> deltas,
+                                      Map<Scope, TreeMap<Long, TreeMap<Integer, Long>>> buckets,
+                                      IssueTransition c, Long seconds, long sign) {
+        if (seconds == null) return;
+        add(deltas.get(Scope.CITY), c.getCityId(), 2, sign * seconds, sign);
+        add(deltas.get(Scope.LOCALITY), c.getLocalityId(), 2, sign * seconds, sign);
+        add(deltas.get(Scope.DEPARTMENT), c.getDepartmentId(), 2, sign * seconds, sign);
+        int bucket = LatencyHistogram.bucketOf(seconds);
+        buckets.get(Scope.LOCALITY).computeIfAbsent(c.getLocalityId(), k -> new TreeMap<>()).merge(bucket, sign, Long::sum);
+        buckets.get(Scope.DEPARTMENT).computeIfAbsent(c.getDepartmentId(), k -> new TreeMap<>()).merge(bucket, sign, Long::sum);
     }
 
     @Transactional
     public void onRelocated(IssueReport issue, Long oldCityId, Long oldLocalityId, Long newCityId, Long newLocalityId) {
         Status s = issue.getStatus();
-        if (isActive(s)) {
-            cityRepository.decrementActiveIssueCount(oldCityId, 1L);
-            localityRepository.decrementActiveIssueCount(oldLocalityId, 1L);
-            cityRepository.incrementActiveIssueCount(newCityId, 1L);
-            localityRepository.incrementActiveIssueCount(newLocalityId, 1L);
-        } else if (isClosed(s)) {
-            cityRepository.decrementResolvedIssueCount(oldCityId, 1L);
-            localityRepository.decrementResolvedIssueCount(oldLocalityId, 1L);
-            cityRepository.incrementResolvedIssueCount(newCityId, 1L);
-            localityRepository.incrementResolvedIssueCount(newLocalityId, 1L);
+        countEvent("relocated", s, 1);
+        long activeDelta = isActive(s) ? 1L : 0L;
+        long resolvedDelta = isClosed(s) ? 1L : 0L;
+        apply(Scope.CITY, oldCityId, -activeDelta, -resolvedDelta);
+        apply(Scope.LOCALITY, oldLocalityId, -activeDelta, -resolvedDelta);
+        apply(Scope.CITY, newCityId, activeDelta, resolvedDelta);
+        apply(Scope.LOCALITY, newLocalityId, activeDelta, resolvedDelta);
+
+        Long seconds = s == Status.RESOLVED ? resolutionSeconds(issue.getCreatedAt(), issue.getResolvedAt()) : null;
+        if (seconds != null) {
+            if (!oldCityId.equals(newCityId)) {
+                cityRepository.applyResolutionDelta(oldCityId, -seconds, -1);
+                cityRepository.applyResolutionDelta(newCityId, seconds, 1);
+            }
+            if (!oldLocalityId.equals(newLocalityId)) {
+                localityRepository.applyResolutionDelta(oldLocalityId, -seconds, -1);
+                localityRepository.applyResolutionDelta(newLocalityId, seconds, 1);
+                int bucket = LatencyHistogram.bucketOf(seconds);
+                histogramRepository.increment(Scope.LOCALITY.name(), oldLocalityId, bucket, -1);
+                histogramRepository.increment(Scope.LOCALITY.name(), newLocalityId, bucket, 1);
+            }
+        }
+    }
+
+    // Resolution totals and histograms are always written directly; they feed summaries, not the leaderboards
+    private void applyResolution(Long cityId, Long localityId, Long departmentId, long seconds, long sign) {
+        cityRepository.applyResolutionDelta(cityId, sign * seconds, sign);
+        localityRepository.applyResolutionDelta(localityId, sign * seconds, sign);
+        departmentRepository.applyResolutionDelta(departmentId, sign * seconds, sign);
+        int bucket = LatencyHistogram.bucketOf(seconds);
+        histogramRepository.increment(Scope.LOCALITY.name(), localityId, bucket, sign);
+        histogramRepository.increment(Scope.DEPARTMENT.name(), departmentId, bucket, sign);
+        analyticsCache.invalidateAfterCommit(Scope.CITY, cityId);
+        analyticsCache.invalidateAfterCommit(Scope.LOCALITY, localityId);
+        analyticsCache.invalidateAfterCommit(Scope.DEPARTMENT, departmentId);
+    }
+
+    private static Long resolutionSeconds(LocalDateTime createdAt, LocalDateTime resolvedAt) {
+        if (createdAt == null || resolvedAt == null) return null;
+        return Duration.between(createdAt, resolvedAt).getSeconds();
+    }
+
+    // counters.events{event, status}: status is the issue's status after the event
+    private void countEvent(String event, Status status, long n) {
+        if (n <= 0) return;
+        Counter counter = Counter.builder("counters.events")
+                .tag("event", event)
+                .tag("status", status == null ? "none" : status.name())
+                .register(meterRegistry);
+        TransactionUtils.runAfterCommit(() -> counter.increment(n));
+    }
+
+    // Direct mode writes a single combined UPDATE now; write-behind mode buffers the delta once
+    // the surrounding transaction commits. Either way the leaderboard index and the analytics cache
+    // follow the commit.
+    private void apply(Scope scope, Long id, long activeDelta, long resolvedDelta) {
+        if (activeDelta == 0 && resolvedDelta == 0) return;
+        if (!deltaBuffer.isEnabled()) {
+            switch (scope) {
+                case CITY -> cityRepository.applyCounterDelta(id, activeDelta, resolvedDelta);
+                case LOCALITY -> localityRepository.applyCounterDelta(id, activeDelta, resolvedDelta);
+                case DEPARTMENT -> departmentRepository.applyCounterDelta(id, activeDelta, resolvedDelta);
+            }
         }
+        track(scope, id, activeDelta, resolvedDelta);
+    }
+
+    // Counter and resolution deltas of one entity in a single UPDATE. In write-behind mode the
+    // counter part is buffered instead, so only the resolution part is written here.
+    private void applyWithResolution(Scope scope, Long id, long[] d) {
+        boolean counters = d[0] != 0 || d[1] != 0;
+        boolean resolution = d[2] != 0 || d[3] != 0;
+        if (counters && !deltaBuffer.isEnabled()) {
+            switch (scope) {
+                case CITY -> cityRepository.applyCounterAndResolutionDelta(id, d[0], d[1], d[2], d[3]);
+                case LOCALITY -> localityRepository.applyCounterAndResolutionDelta(id, d[0], d[1], d[2], d[3]);
+                case DEPARTMENT -> departmentRepository.applyCounterAndResolutionDelta(id, d[0], d[1], d[2], d[3]);
+            }
+        } else if (resolution) {
+            switch (scope) {
+                case CITY -> cityRepository.applyResolutionDelta(id, d[2], d[3]);
+                case LOCALITY -> localityRepository.applyResolutionDelta(id, d[2], d[3]);
+                case DEPARTMENT -> departmentRepository.applyResolutionDelta(id, d[2], d[3]);
+            }
+        }
+        track(scope, id, d[0], d[1]);
+        if (resolution) analyticsCache.invalidateAfterCommit(scope, id);
+    }
+
+    private void track(Scope scope, Long id, long activeDelta, long resolvedDelta) {
+        if (activeDelta == 0 && resolvedDelta == 0) return;
+        boolean writeBehind = deltaBuffer.isEnabled();
+        commitGate.runAfterCommit(() -> {
+            if (writeBehind) deltaBuffer.add(scope, id, activeDelta, resolvedDelta);
+            leaderboardIndex.applyDelta(scope, id, activeDelta, resolvedDelta);
+            analyticsCache.invalidate(scope, id);
+        });
     }
-}
\ No newline at end of file
+}
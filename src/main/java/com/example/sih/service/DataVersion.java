@@ -0,0 +1,33 @@
+package com.example.sih.service;
+
+import com.example.sih.util.TransactionUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonic version of everything the analytics and reference endpoints serve. Every mutation
+ * path bumps it once its transaction commits; the value is combined with a per-process epoch
+ * into the ETag, so a restart never reuses an old tag.
+ */
+@Component
+public class DataVersion {
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicLong version = new AtomicLong();
+
+    public long current() {
+        return version.get();
+    }
+
+    public void bump() {
+        version.incrementAndGet();
+    }
+
+    public void bumpAfterCommit() {
+        TransactionUtils.runAfterCommit(this::bump);
+    }
+
+    public String etag() {
+        return "\"" + Long.toString(epoch, 36) + "-" + version.get() + "\"";
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.sih.service;
+
+import com.example.sih.dto.BulkheadStatus;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps concurrent JDBC connections at the pool size. With request threads virtual there is no
+ * Tomcat thread limit in front of Hikari any more, so excess requests park here on a fair
+ * semaphore (cheap for a virtual thread) instead of piling into the pool's own wait queue.
+ * Permits are taken when a connection is checked out and returned when it is closed, see
+ * {@link com.example.sih.config.BulkheadDataSource}.
+ */
+@Component
+public class DbBulkhead {
+    private final boolean enabled;
+    private final int maxConcurrent;
+    private final long timeoutMs;
+    private final Semaphore permits;
+    private final Timer waitTimer;
+
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong waited = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public DbBulkhead(@Value("${db.bulkhead.enabled:${spring.threads.virtual.enabled:false}}") boolean enabled,
+                      @Value("${db.bulkhead.max-concurrent:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrent,
+                      @Value("${db.bulkhead.timeout-ms:30000}") long timeoutMs,
+                      MeterRegistry meterRegistry) {
+        if (maxConcurrent <= 0) throw new IllegalArgumentException("db.bulkhead.max-concurrent must be positive");
+        this.enabled = enabled;
+        this.maxConcurrent = maxConcurrent;
+        this.timeoutMs = timeoutMs;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.waitTimer = Timer.builder("db.bulkhead.wait").publishPercentileHistogram().register(meterRegistry);
+        Gauge.builder("db.bulkhead.queued", permits, Semaphore::getQueueLength).register(meterRegistry);
+        Gauge.builder("db.bulkhead.in.use", permits, p -> maxConcurrent - p.availablePermits())
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void acquire() throws SQLTransientConnectionException {
+        if (permits.tryAcquire()) {
+            acquired.incrementAndGet();
+            waitTimer.record(0, TimeUnit.NANOSECONDS);
+            return;
+        }
+        long start = System.nanoTime();
+        boolean ok;
+        try {
+            ok = permits.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database permit", ex);
+        }
+        long wait = System.nanoTime() - start;
+        if (!ok) {
+            timedOut.incrementAndGet();
+            throw new SQLTransientConnectionException(
+                    "No database permit within " + timeoutMs + " ms (" + maxConcurrent + " in use)");
+        }
+        acquired.incrementAndGet();
+        waited.incrementAndGet();
+        waitTimer.record(wait, TimeUnit.NANOSECONDS);
+        totalWaitNanos.addAndGet(wait);
+        maxWaitNanos.accumulateAndGet(wait, Math::max);
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int queueLength() {
+        return permits.getQueueLength();
+    }
+
+    public BulkheadStatus status() {
+        long w = waited.get();
+        return new BulkheadStatus(enabled, maxConcurrent, maxConcurrent - permits.availablePermits(),
+                permits.getQueueLength(), acquired.get(), w, timedOut.get(),
+                w == 0 ? 0.0 : totalWaitNanos.get() / 1e6 / w, maxWaitNanos.get() / 1e6);
+    }
+}
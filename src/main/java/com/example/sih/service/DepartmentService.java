@@ -1,7 +1,10 @@
 package com.example.sih.service;
 
+import com.example.sih.dto.JobStatus;
 import com.example.sih.entity.Department;
 import com.example.sih.repository.DepartmentRepository;
+import com.example.sih.types.Scope;
+import com.example.sih.util.TransactionUtils;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -13,11 +16,20 @@ import java.util.List;
 @RequiredArgsConstructor
 public class DepartmentService {
     private final DepartmentRepository departmentRepository;
-    private final RecalculationService recalculationService;
+    private final RecalculationJobService recalculationJobService;
+    private final LeaderboardIndex leaderboardIndex;
+    private final DataVersion dataVersion;
+    private final AnalyticsCache analyticsCache;
+    private final ReferenceDataCache referenceData;
 
     @Transactional
     public Department createDepartment(Department department) {
-        return departmentRepository.save(department);
+        Department saved = departmentRepository.save(department);
+        TransactionUtils.runAfterCommit(() -> leaderboardIndex.put(saved));
+        analyticsCache.invalidateAfterCommit(Scope.DEPARTMENT, saved.getId());
+        referenceData.invalidateAfterCommit();
+        dataVersion.bumpAfterCommit();
+        return saved;
     }
 
     @Transactional(readOnly = true)
@@ -33,10 +45,13 @@ public class DepartmentService {
     @Transactional
     public void deleteDepartment(Long id) {
         departmentRepository.deleteById(id);
+        TransactionUtils.runAfterCommit(() -> leaderboardIndex.remove(Scope.DEPARTMENT, id));
+        analyticsCache.invalidateAfterCommit(Scope.DEPARTMENT, id);
+        referenceData.invalidateAfterCommit();
+        dataVersion.bumpAfterCommit();
     }
 
-    @Transactional
-    public void recalculateDepartmentCounts() {
-        recalculationService.recalcDepartments();
+    public JobStatus recalculateDepartmentCounts() {
+        return recalculationJobService.submit(Scope.DEPARTMENT);
     }
 }
\ No newline at end of file
@@ -0,0 +1,200 @@
+package com.example.sih.service;
+
+import com.example.sih.dto.DriftStatus;
+import com.example.sih.repository.CityRepository;
+import com.example.sih.repository.DepartmentRepository;
+import com.example.sih.repository.LocalityRepository;
+import com.example.sih.types.Scope;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background check of the denormalized counters against issue_report.
+ * <p>
+ * Each tick takes the next window of {@code counters.reconcile.sample-size} ids per scope
+ * (wrapping around), compares the stored counters with exact counts and rewrites the ones that
+ * drifted, all in one statement. The statement runs under REPEATABLE READ: if a concurrent
+ * write touched one of the rows, the window is rolled back and retried on the next lap
+ * instead of overwriting a fresh counter with a stale count.
+ * <p>
+ * A tick is skipped while the connection pool is above {@code counters.reconcile.max-pool-usage}
+ * or anyone is waiting for a connection, and the reconciler stays off in write-behind mode, where the stored
+ * counters legitimately lag the buffer.
+ */
+@Slf4j
+@Component
+public class DriftReconciler {
+    private final CityRepository cityRepo;
+    private final LocalityRepository locRepo;
+    private final DepartmentRepository depRepo;
+    private final CounterDeltaBuffer deltaBuffer;
+    private final LeaderboardIndex leaderboardIndex;
+    private final AnalyticsCache analyticsCache;
+    private final DataVersion dataVersion;
+    private final DataSource dataSource;
+    private final DbBulkhead dbBulkhead;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${counters.reconcile.enabled:true}")
+    private boolean enabled;
+
+    @Value("${counters.reconcile.sample-size:200}")
+    private int sampleSize;
+
+    @Value("${counters.reconcile.max-pool-usage:0.5}")
+    private double maxPoolUsage;
+
+    private final Map<Scope, Long> cursor = new EnumMap<>(Scope.class);
+    private final Map<Scope, AtomicLong> idsChecked = new EnumMap<>(Scope.class);
+    private final Map<Scope, AtomicLong> driftCorrected = new EnumMap<>(Scope.class);
+    private final Map<Scope, AtomicLong> lastWindowDrift = new EnumMap<>(Scope.class);
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong skippedForLoad = new AtomicLong();
+    private final AtomicLong skippedForConflict = new AtomicLong();
+    private volatile LocalDateTime lastDriftAt;
+
+    public DriftReconciler(CityRepository cityRepo, LocalityRepository locRepo, DepartmentRepository depRepo,
+                           CounterDeltaBuffer deltaBuffer, LeaderboardIndex leaderboardIndex,
+                           AnalyticsCache analyticsCache, DataVersion dataVersion, DataSource dataSource,
+                           DbBulkhead dbBulkhead, PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry) {
+        this.cityRepo = cityRepo;
+        this.locRepo = locRepo;
+        this.depRepo = depRepo;
+        this.deltaBuffer = deltaBuffer;
+        this.leaderboardIndex = leaderboardIndex;
+        this.analyticsCache = analyticsCache;
+        this.dataVersion = dataVersion;
+        this.dataSource = dataSource;
+        this.dbBulkhead = dbBulkhead;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        for (Scope scope : Scope.values()) {
+            idsChecked.put(scope, new AtomicLong());
+            driftCorrected.put(scope, new AtomicLong());
+            lastWindowDrift.put(scope, new AtomicLong());
+            String tag = scope.name();
+            Gauge.builder("counters.drift.rows", lastWindowDrift.get(scope), AtomicLong::get)
+                    .description("Drifted rows found in the most recently checked window")
+                    .tag("scope", tag).register(meterRegistry);
+            FunctionCounter.builder("counters.drift.corrected", driftCorrected.get(scope), AtomicLong::get)
+                    .tag("scope", tag).register(meterRegistry);
+            FunctionCounter.builder("counters.drift.checked", idsChecked.get(scope), AtomicLong::get)
+                    .tag("scope", tag).register(meterRegistry);
+        }
+        FunctionCounter.builder("counters.drift.skipped", skippedForLoad, AtomicLong::get)
+                .tag("reason", "load").register(meterRegistry);
+        FunctionCounter.builder("counters.drift.skipped", skippedForConflict, AtomicLong::get)
+                .tag("reason", "conflict").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${counters.reconcile.interval-ms:10000}",
+            initialDelayString = "${counters.reconcile.interval-ms:10000}")
+    public void reconcile() {
+        if (!enabled || deltaBuffer.isEnabled()) return;
+        if (poolBusy()) {
+            skippedForLoad.incrementAndGet();
+            return;
+        }
+        runs.incrementAndGet();
+        for (Scope scope : Scope.values()) {
+            if (poolBusy()) {
+                skippedForLoad.incrementAndGet();
+                return;
+            }
+            reconcileNextWindow(scope);
+        }
+    }
+
+    public DriftStatus status() {
+        Map<Scope, Long> checked = new EnumMap<>(Scope.class);
+        Map<Scope, Long> corrected = new EnumMap<>(Scope.class);
+        idsChecked.forEach((s, v) -> checked.put(s, v.get()));
+        driftCorrected.forEach((s, v) -> corrected.put(s, v.get()));
+        return new DriftStatus(enabled && !deltaBuffer.isEnabled(), runs.get(), skippedForLoad.get(),
+                skippedForConflict.get(), checked, corrected, lastDriftAt);
+    }
+
+    private void reconcileNextWindow(Scope scope) {
+        Long min = minId(scope);
+        Long max = maxId(scope);
+        if (min == null || max == null) return;
+        long from = cursor.getOrDefault(scope, min);
+        if (from < min || from > max) from = min;
+        long to = Math.min(max, from + sampleSize - 1);
+        long lo = from;
+        try {
+            Integer corrected = transactionTemplate.execute(s -> recalcRange(scope, lo, to));
+            idsChecked.get(scope).addAndGet(to - from + 1);
+            lastWindowDrift.get(scope).set(corrected == null ? 0 : corrected);
+            if (corrected != null && corrected > 0) {
+                driftCorrected.get(scope).addAndGet(corrected);
+                lastDriftAt = LocalDateTime.now();
+                log.warn("Counter drift repaired for {} {} in ids {}..{}", corrected, scope, from, to);
+                leaderboardIndex.reload();
+                analyticsCache.invalidateAll();
+                dataVersion.bump();
+            }
+        } catch (ConcurrencyFailureException ex) {
+            skippedForConflict.incrementAndGet();
+        }
+        cursor.put(scope, to >= max ? min : to + 1);
+    }
+
+    private boolean poolBusy() {
+        if (dbBulkhead.isEnabled() && dbBulkhead.queueLength() > 0) return true;
+        HikariDataSource hikari;
+        try {
+            if (!dataSource.isWrapperFor(HikariDataSource.class)) return false;
+            hikari = dataSource.unwrap(HikariDataSource.class);
+        } catch (SQLException ex) {
+            return false;
+        }
+        HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+        if (pool == null) return false;
+        int total = Math.max(1, hikari.getMaximumPoolSize());
+        return pool.getThreadsAwaitingConnection() > 0 || pool.getActiveConnections() >= total * maxPoolUsage;
+    }
+
+    private int recalcRange(Scope scope, long from, long to) {
+        return switch (scope) {
+            case CITY -> cityRepo.recalcCountersInRange(from, to);
+            case LOCALITY -> locRepo.recalcCountersInRange(from, to);
+            case DEPARTMENT -> depRepo.recalcCountersInRange(from, to);
+        };
+    }
+
+    private Long minId(Scope scope) {
+        return switch (scope) {
+            case CITY -> cityRepo.minId();
+            case LOCALITY -> locRepo.minId();
+            case DEPARTMENT -> depRepo.minId();
+        };
+    }
+
+    private Long maxId(Scope scope) {
+        return switch (scope) {
+            case CITY -> cityRepo.maxId();
+            case LOCALITY -> locRepo.maxId();
+            case DEPARTMENT -> depRepo.maxId();
+        };
+    }
+}
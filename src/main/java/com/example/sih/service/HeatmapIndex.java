@@ -0,0 +1,143 @@
+package com.example.sih.service;
+
+import com.example.sih.dto.HeatmapCell;
+import com.example.sih.dto.HeatmapResponse;
+import com.example.sih.repository.IssueReportRepository;
+import com.example.sih.types.IssueCategory;
+import com.example.sih.types.Status;
+import com.example.sih.util.GeoGrid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Multi-resolution issue counts per grid cell for the map heatmap.
+ * <p>
+ * Level 0 is the {@link GeoGrid} cell; each further level doubles the cell side, up to
+ * {@link #LEVELS} levels. Every cell keeps one count per (status, category) pair, so a status or
+ * category filter is a handful of array reads. Counts are built once from a grouped query on
+ * startup and then follow issue create/status/delete commits, so tile requests never touch
+ * issue_report.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HeatmapIndex {
+    public static final int LEVELS = 8;
+    private static final int MAX_CELLS_PER_REQUEST = 20_000;
+    private static final int CATEGORIES = IssueCategory.values().length;
+    private static final int SLOTS = Status.values().length * CATEGORIES;
+
+    private final IssueReportRepository issueRepo;
+
+    private final List<ConcurrentHashMap<Long, AtomicLongArray>> levels = new ArrayList<>(LEVELS);
+
+    {
+        for (int i = 0; i < LEVELS; i++) levels.add(new ConcurrentHashMap<>());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        for (ConcurrentHashMap<Long, AtomicLongArray> level : levels) level.clear();
+        long issues = 0;
+        for (Object[] r : issueRepo.countByGridCell()) {
+            long n = (Long) r[3];
+            add((Long) r[0], (Status) r[1], (IssueCategory) r[2], n);
+            issues += n;
+        }
+        log.debug("Heatmap index built from {} issues", issues);
+    }
+
+    public void add(Long gridCell, Status status, IssueCategory category, long delta) {
+        if (gridCell == null || status == null || category == null || delta == 0) return;
+        long row = gridCell / GeoGrid.COLUMNS;
+        long col = gridCell % GeoGrid.COLUMNS;
+        int slot = status.ordinal() * CATEGORIES + category.ordinal();
+        for (int level = 0; level < LEVELS; level++) {
+            long key = (row >> level) * columns(level) + (col >> level);
+            levels.get(level).computeIfAbsent(key, k -> new AtomicLongArray(SLOTS)).addAndGet(slot, delta);
+        }
+    }
+
+    public void onStatusChanged(Long gridCell, IssueCategory category, Status from, Status to) {
+        if (from == to) return;
+        add(gridCell, from, category, -1);
+        add(gridCell, to, category, 1);
+    }
+
+    /**
+     * Picks the level for a web-map zoom (about 32 cells across a 256px tile), coarsened further
+     * if the bounding box would still cover more than {@link #MAX_CELLS_PER_REQUEST} cells.
+     */
+    public HeatmapResponse query(double minLon, double minLat, double maxLon, double maxLat, int zoom,
+                                 Status status, IssueCategory category) {
+        double tileDegrees = 360.0 / Math.pow(2, Math.max(0, Math.min(zoom, 22)));
+        double wanted = tileDegrees / 32;
+        int level = (int) Math.ceil(Math.log(wanted / GeoGrid.CELL_DEGREES) / Math.log(2));
+        level = Math.max(0, Math.min(LEVELS - 1, level));
+        while (level < LEVELS - 1 && cellsIn(minLon, minLat, maxLon, maxLat, level) > MAX_CELLS_PER_REQUEST) level++;
+
+        double size = GeoGrid.CELL_DEGREES * (1L << level);
+        long minRow = (long) Math.floor((minLat + 90) / size);
+        long maxRow = (long) Math.floor((maxLat + 90) / size);
+        long minCol = (long) Math.floor((minLon + 180) / size);
+        long maxCol = (long) Math.floor((maxLon + 180) / size);
+        long cols = columns(level);
+        ConcurrentHashMap<Long, AtomicLongArray> cells = levels.get(level);
+
+        List<HeatmapCell> out = new ArrayList<>();
+        long total = cellsIn(minLon, minLat, maxLon, maxLat, level);
+        if (total <= cells.size()) {
+            for (long row = minRow; row <= maxRow; row++) {
+                for (long col = minCol; col <= maxCol; col++) {
+                    AtomicLongArray counts = cells.get(row * cols + col);
+                    if (counts != null) addCell(out, row, col, size, count(counts, status, category));
+                }
+            }
+        } else {
+            // sparse data: scanning the populated cells is cheaper than probing every box cell
+            cells.forEach((key, counts) -> {
+                long row = key / cols;
+                long col = key % cols;
+                if (row >= minRow && row <= maxRow && col >= minCol && col <= maxCol)
+                    addCell(out, row, col, size, count(counts, status, category));
+            });
+        }
+        return new HeatmapResponse(level, size, out);
+    }
+
+    private static void addCell(List<HeatmapCell> out, long row, long col, double size, long count) {
+        if (count <= 0) return;
+        out.add(new HeatmapCell(row * size - 90, col * size - 180, count));
+    }
+
+    private static long count(AtomicLongArray counts, Status status, IssueCategory category) {
+        long sum = 0;
+        for (Status s : Status.values()) {
+            if (status != null && s != status) continue;
+            for (IssueCategory c : IssueCategory.values()) {
+                if (category != null && c != category) continue;
+                sum += counts.get(s.ordinal() * CATEGORIES + c.ordinal());
+            }
+        }
+        return sum;
+    }
+
+    private static long cellsIn(double minLon, double minLat, double maxLon, double maxLat, int level) {
+        double size = GeoGrid.CELL_DEGREES * (1L << level);
+        long rows = (long) Math.floor((maxLat + 90) / size) - (long) Math.floor((minLat + 90) / size) + 1;
+        long cols = (long) Math.floor((maxLon + 180) / size) - (long) Math.floor((minLon + 180) / size) + 1;
+        return rows * cols;
+    }
+
+    private static long columns(int level) {
+        return (GeoGrid.COLUMNS + (1L << level) - 1) >> level;
+    }
+}
@@ -1,46 +1,98 @@
 package com.example.sih.service;
 
+import com.example.sih.dto.BatchItemResult;
+import com.example.sih.dto.BulkStatusResult;
 import com.example.sih.dto.CreateIssueRequest;
+import com.example.sih.dto.IssueFilter;
+import com.example.sih.dto.IssuePage;
+import com.example.sih.dto.IssueRecord;
+import com.example.sih.dto.IssueTransition;
+import com.example.sih.dto.IssueView;
+import com.example.sih.dto.NearbyIssue;
 import com.example.sih.dto.UpdateIssueLocationRequest;
-import com.example.sih.entity.City;
-import com.example.sih.entity.Department;
 import com.example.sih.entity.IssueReport;
-import com.example.sih.entity.Locality;
 import com.example.sih.repository.CityRepository;
 import com.example.sih.repository.DepartmentRepository;
+import com.example.sih.repository.IssueConfirmationRepository;
+import com.example.sih.repository.IssueReportJdbcRepository;
 import com.example.sih.repository.IssueReportRepository;
 import com.example.sih.repository.LocalityRepository;
 import com.example.sih.types.IssueCategory;
 import com.example.sih.types.Status;
+import com.example.sih.util.GeoGrid;
+import com.example.sih.util.TransactionUtils;
+import io.micrometer.core.annotation.Timed;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Timed(value = "issues.service", histogram = true)
 public class IssueReportService {
     private final IssueReportRepository issueReportRepository;
     private final CityRepository cityRepository;
     private final LocalityRepository localityRepository;
     private final DepartmentRepository departmentRepository;
     private final CounterService counterService;
+    private final Validator validator;
+    private final ReferenceDataCache referenceData;
+    private final IssueConfirmationRepository confirmationRepository;
+    private final HeatmapIndex heatmapIndex;
+    private final IssueReportJdbcRepository jdbcRepository;
+    private final RollupService rollupService;
+    private final DataVersion dataVersion;
 
-    private Department resolveDepartment(IssueCategory category) {
-        Department dep = departmentRepository.findByCategoryHandled(category);
-        if (dep == null) throw new EntityNotFoundException("No dept for category " + category);
-        return dep;
-    }
+    private static final int CONFIRMATION_SLOTS = 16;
+    private static final int STATUS_CAS_ATTEMPTS = 5;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final double MAX_NEARBY_RADIUS_METERS = 5_000;
+    private static final int MAX_NEARBY_LIMIT = 500;
+
+    @Value("${issues.batch.max-size:1000}")
+    private int batchMaxSize;
+
+    @Value("${issues.dedup.enabled:true}")
+    private boolean dedupEnabled;
 
+    @Value("${issues.dedup.radius-meters:25}")
+    private double dedupRadiusMeters;
+
+    @Value("${issues.dedup.window-hours:72}")
+    private long dedupWindowHours;
+
+    // References come from the cache and are attached as proxies, so no SELECT is issued here
     @Transactional
-    public IssueReport createIssue(CreateIssueRequest req) {
-        City city = cityRepository.findById(req.getCityId())
-                .orElseThrow(() -> new EntityNotFoundException("City not found"));
-        Locality locality = localityRepository.findById(req.getLocalityId())
-                .orElseThrow(() -> new EntityNotFoundException("Locality not found"));
-        Department dept = resolveDepartment(req.getCategory());
+    public IssueView createIssue(CreateIssueRequest req) {
+        referenceData.requireLocalityInCity(req.getLocalityId(), req.getCityId());
+        Long deptId = referenceData.departmentFor(req.getCategory());
+
+        // A matching open report nearby absorbs this one as a confirmation: no new row, no counter bump
+        Long duplicateId = findOpenDuplicate(req);
+        if (duplicateId != null) {
+            confirm(duplicateId);
+            return view(duplicateId);
+        }
 
         IssueReport issue = IssueReport.builder()
                 .description(req.getDescription())
@@ -49,46 +101,290 @@ public class IssueReportService {
                 .photoUrl(req.getPhotoUrl())
                 .status(Status.SUBMITTED)
                 .category(req.getCategory())
-                .department(dept)
-                .city(city)
-                .locality(locality)
+                .department(departmentRepository.getReferenceById(deptId))
+                .city(cityRepository.getReferenceById(req.getCityId()))
+                .locality(localityRepository.getReferenceById(req.getLocalityId()))
                 .build();
 
         IssueReport saved = issueReportRepository.save(issue);
-        counterService.onIssueCreated(city.getId(), locality.getId(), dept.getId());
-        return saved;
+        counterService.onIssueCreated(req.getCityId(), req.getLocalityId(), deptId);
+        rollupService.onIssueCreated(saved);
+        dataVersion.bumpAfterCommit();
+        TransactionUtils.runAfterCommit(() ->
+                heatmapIndex.add(saved.getGridCell(), saved.getStatus(), saved.getCategory(), 1));
+        return view(saved.getId());
     }
 
-    @Transactional
-    public IssueReport updateStatus(Long issueId, Status newStatus) {
-        IssueReport issue = issueReportRepository.findById(issueId)
+    private IssueView view(Long issueId) {
+        return issueReportRepository.findViewById(issueId)
                 .orElseThrow(() -> new EntityNotFoundException("Issue not found"));
-        Status from = issue.getStatus();
-        if (from == newStatus) return issue;
-
-        counterService.onStatusTransition(issue, from, newStatus);
-        if (newStatus == Status.RESOLVED) issue.setResolvedAt(LocalDateTime.now());
-        if (from == Status.RESOLVED && newStatus != Status.RESOLVED) issue.setResolvedAt(null);
-        issue.setStatus(newStatus);
-        return issueReportRepository.save(issue);
+    }
+
+    private Long findOpenDuplicate(CreateIssueRequest req) {
+        if (!dedupEnabled) return null;
+        return issueReportRepository.findOpenDuplicate(req.getLatitude(), req.getLongitude(),
+                GeoGrid.cellsWithin(req.getLatitude(), req.getLongitude(), dedupRadiusMeters),
+                dedupRadiusMeters, req.getCategory().name(),
+                LocalDateTime.now().minusHours(dedupWindowHours));
+    }
+
+    // Same in-batch rule as findOpenDuplicate, for items whose match is not saved yet
+    private int findDuplicateInBatch(List<IssueReport> pending, CreateIssueRequest req) {
+        for (int k = 0; k < pending.size(); k++) {
+            IssueReport p = pending.get(k);
+            if (p.getCategory() == req.getCategory() && GeoGrid.haversineMeters(p.getLatitude(), p.getLongitude(),
+                    req.getLatitude(), req.getLongitude()) <= dedupRadiusMeters) return k;
+        }
+        return -1;
+    }
+
+    private void confirm(Long issueId) {
+        confirmationRepository.increment(issueId, ThreadLocalRandom.current().nextInt(CONFIRMATION_SLOTS));
+    }
+
+    @Transactional
+    public long confirmIssue(Long issueId) {
+        if (!issueReportRepository.existsById(issueId)) throw new EntityNotFoundException("Issue not found");
+        confirm(issueId);
+        return confirmationRepository.countForIssue(issueId);
+    }
+
+    @Transactional(readOnly = true)
+    public long getConfirmations(Long issueId) {
+        if (!issueReportRepository.existsById(issueId)) throw new EntityNotFoundException("Issue not found");
+        return confirmationRepository.countForIssue(issueId);
+    }
+
+    /**
+     * Creates many issues in one transaction. Each item goes through the same duplicate check as
+     * {@link #createIssue}: a match among open issues, or among earlier items of the same batch,
+     * becomes a confirmation of that issue instead of a new row.
+     */
+    @Transactional
+    public List<BatchItemResult> createIssues(List<CreateIssueRequest> reqs) {
+        if (reqs.size() > batchMaxSize)
+            throw new IllegalArgumentException("Batch size " + reqs.size() + " exceeds limit of " + batchMaxSize);
+
+        BatchItemResult[] results = new BatchItemResult[reqs.size()];
+        List<IssueReport> toSave = new ArrayList<>();
+        List<Integer> savedIndexes = new ArrayList<>();
+        Map<Integer, Integer> batchDuplicates = new HashMap<>(); // item index -> position in toSave
+        for (int i = 0; i < reqs.size(); i++) {
+            CreateIssueRequest r = reqs.get(i);
+            String error = validateBatchItem(r);
+            if (error != null) {
+                results[i] = BatchItemResult.rejected(i, error);
+                continue;
+            }
+            if (dedupEnabled) {
+                Long duplicateId = findOpenDuplicate(r);
+                if (duplicateId != null) {
+                    confirm(duplicateId);
+                    results[i] = BatchItemResult.confirmed(i, duplicateId);
+                    continue;
+                }
+                int earlier = findDuplicateInBatch(toSave, r);
+                if (earlier >= 0) {
+                    batchDuplicates.put(i, earlier);
+                    continue;
+                }
+            }
+            Long deptId = referenceData.departmentFor(r.getCategory());
+            toSave.add(IssueReport.builder()
+                    .description(r.getDescription())
+                    .latitude(r.getLatitude())
+                    .longitude(r.getLongitude())
+                    .photoUrl(r.getPhotoUrl())
+                    .status(Status.SUBMITTED)
+                    .category(r.getCategory())
+                    .department(departmentRepository.getReferenceById(deptId))
+                    .city(cityRepository.getReferenceById(r.getCityId()))
+                    .locality(localityRepository.getReferenceById(r.getLocalityId()))
+                    .build());
+            savedIndexes.add(i);
+        }
+
+        List<IssueReport> saved = issueReportRepository.saveAll(toSave);
+        Map<Long, Long> byCity = new HashMap<>();
+        Map<Long, Long> byLocality = new HashMap<>();
+        Map<Long, Long> byDepartment = new HashMap<>();
+        for (int k = 0; k < saved.size(); k++) {
+            int i = savedIndexes.get(k);
+            CreateIssueRequest r = reqs.get(i);
+            results[i] = BatchItemResult.created(i, saved.get(k).getId());
+            byCity.merge(r.getCityId(), 1L, Long::sum);
+            byLocality.merge(r.getLocalityId(), 1L, Long::sum);
+            byDepartment.merge(referenceData.departmentFor(r.getCategory()), 1L, Long::sum);
+        }
+        batchDuplicates.forEach((i, k) -> {
+            Long id = saved.get(k).getId();
+            confirm(id);
+            results[i] = BatchItemResult.confirmed(i, id);
+        });
+        counterService.onIssuesCreated(byCity, byLocality, byDepartment);
+        rollupService.onIssuesCreated(saved);
+        dataVersion.bumpAfterCommit();
+        TransactionUtils.runAfterCommit(() -> saved.forEach(issue ->
+                heatmapIndex.add(issue.getGridCell(), issue.getStatus(), issue.getCategory(), 1)));
+        return Arrays.asList(results);
+    }
+
+    private String validateBatchItem(CreateIssueRequest r) {
+        if (r == null) return "Item is null";
+        Set<ConstraintViolation<CreateIssueRequest>> violations = validator.validate(r);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+        }
+        try {
+            referenceData.requireLocalityInCity(r.getLocalityId(), r.getCityId());
+            referenceData.departmentFor(r.getCategory());
+        } catch (EntityNotFoundException | IllegalArgumentException ex) {
+            return ex.getMessage();
+        }
+        return null;
+    }
+
+    @Transactional(readOnly = true)
+    public IssuePage listIssues(IssueFilter filter, String cursor, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE)
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        LocalDateTime afterCreatedAt = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+                afterCreatedAt = LocalDateTime.parse(parts[0]);
+                afterId = Long.parseLong(parts[1]);
+            } catch (RuntimeException ex) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+        // one extra row tells whether another page exists
+        List<IssueRecord> rows = jdbcRepository.findPage(filter, afterCreatedAt, afterId, limit + 1);
+        if (rows.size() <= limit) return new IssuePage(rows, null);
+        List<IssueRecord> items = rows.subList(0, limit);
+        IssueRecord last = items.get(limit - 1);
+        String next = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                (last.getCreatedAt() + "|" + last.getId()).getBytes(StandardCharsets.UTF_8));
+        return new IssuePage(new ArrayList<>(items), next);
+    }
+
+    @Transactional(readOnly = true)
+    public List<NearbyIssue> findNearby(double lat, double lon, double radiusMeters,
+                                        Status status, IssueCategory category, int limit) {
+        if (lat < -90 || lat > 90 || lon < -180 || lon > 180)
+            throw new IllegalArgumentException("Invalid coordinates");
+        if (radiusMeters <= 0 || radiusMeters > MAX_NEARBY_RADIUS_METERS)
+            throw new IllegalArgumentException("radius must be between 0 and " + MAX_NEARBY_RADIUS_METERS + " m");
+        if (limit < 1 || limit > MAX_NEARBY_LIMIT)
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_NEARBY_LIMIT);
+
+        List<Long> cells = GeoGrid.cellsWithin(lat, lon, radiusMeters);
+        return issueReportRepository.findNearby(lat, lon, cells, radiusMeters,
+                        status == null ? null : status.name(),
+                        category == null ? null : category.name(), limit).stream()
+                .map(r -> new NearbyIssue(
+                        ((Number) r[0]).longValue(),
+                        (String) r[1],
+                        ((Number) r[2]).doubleValue(),
+                        ((Number) r[3]).doubleValue(),
+                        Status.valueOf((String) r[4]),
+                        IssueCategory.valueOf((String) r[5]),
+                        ((Number) r[6]).doubleValue()))
+                .toList();
+    }
+
+    /**
+     * Compare-and-set transition: the issue view is read to learn its current status, then one
+     * statement moves it only if the status is unchanged and applies all counter, histogram and
+     * rollup deltas (see {@link IssueReportJdbcRepository#compareAndSetStatus}). If another
+     * transition got there first, the view is re-read and the transition retried against the new
+     * status.
+     */
+    @Transactional
+    public IssueView updateStatus(Long issueId, Status newStatus) {
+        for (int attempt = 0; ; attempt++) {
+            IssueView issue = view(issueId);
+            Status from = issue.getStatus();
+            if (from == newStatus) return issue;
+
+            LocalDateTime now = LocalDateTime.now();
+            Optional<IssueTransition> moved = jdbcRepository.compareAndSetStatus(issueId, from, newStatus, now,
+                    counterService.writesCountersDirectly());
+            if (moved.isEmpty()) {
+                if (attempt + 1 >= STATUS_CAS_ATTEMPTS)
+                    throw new ConcurrencyFailureException("Issue " + issueId + " status kept changing, try again");
+                continue;
+            }
+
+            IssueTransition t = moved.get();
+            counterService.onStatusTransitionWritten(t, newStatus);
+            dataVersion.bumpAfterCommit();
+            TransactionUtils.runAfterCommit(() ->
+                    heatmapIndex.onStatusChanged(t.getGridCell(), t.getCategory(), from, newStatus));
+            if (newStatus == Status.RESOLVED) issue.setResolvedAt(now);
+            if (from == Status.RESOLVED) issue.setResolvedAt(null);
+            if (newStatus == Status.REJECTED) issue.setRejectedAt(now);
+            if (from == Status.REJECTED) issue.setRejectedAt(null);
+            issue.setStatus(newStatus);
+            issue.setUpdatedAt(now);
+            return issue;
+        }
+    }
+
+    /**
+     * Moves many issues to one status with a single conditional UPDATE. Counter, resolution,
+     * rollup and heatmap deltas are derived from the returned pre-update rows and applied once
+     * per entity rather than once per issue.
+     */
+    @Transactional
+    public BulkStatusResult updateStatuses(List<Long> issueIds, Status newStatus) {
+        if (issueIds == null || issueIds.isEmpty()) throw new IllegalArgumentException("ids are required");
+        if (newStatus == null) throw new IllegalArgumentException("status is required");
+        if (issueIds.contains(null)) throw new IllegalArgumentException("ids must not contain null");
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(issueIds));
+        if (ids.size() > batchMaxSize)
+            throw new IllegalArgumentException("Batch size " + ids.size() + " exceeds limit of " + batchMaxSize);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<IssueTransition> changes = jdbcRepository.transitionStatus(ids, newStatus, now);
+        Set<Long> changed = new HashSet<>();
+        for (IssueTransition c : changes) changed.add(c.getId());
+        Set<Long> unchanged = new HashSet<>(jdbcRepository.idsWithStatus(ids, newStatus));
+        unchanged.removeAll(changed);
+
+        if (!changes.isEmpty()) {
+            counterService.onStatusTransitions(changes, newStatus, now);
+            rollupService.onStatusTransitions(changes, newStatus, now);
+            dataVersion.bumpAfterCommit();
+            TransactionUtils.runAfterCommit(() -> changes.forEach(c ->
+                    heatmapIndex.onStatusChanged(c.getGridCell(), c.getCategory(), c.getFrom(), newStatus)));
+        }
+        return new BulkStatusResult(newStatus,
+                ids.stream().filter(changed::contains).toList(),
+                ids.stream().filter(unchanged::contains).toList(),
+                ids.stream().filter(id -> !changed.contains(id) && !unchanged.contains(id)).toList());
     }
 
     @Transactional
-    public IssueReport updateLocation(Long issueId, UpdateIssueLocationRequest req) {
+    public IssueView updateLocation(Long issueId, UpdateIssueLocationRequest req) {
         IssueReport issue = issueReportRepository.findById(issueId)
                 .orElseThrow(() -> new EntityNotFoundException("Issue not found"));
         Long oldC = issue.getCity().getId();
         Long oldL = issue.getLocality().getId();
 
-        City newC = cityRepository.findById(req.getCityId())
-                .orElseThrow(() -> new EntityNotFoundException("City not found"));
-        Locality newL = localityRepository.findById(req.getLocalityId())
-                .orElseThrow(() -> new EntityNotFoundException("Locality not found"));
+        referenceData.requireLocalityInCity(req.getLocalityId(), req.getCityId());
 
-        counterService.onRelocated(issue, oldC, oldL, newC.getId(), newL.getId());
-        issue.setCity(newC);
-        issue.setLocality(newL);
-        return issueReportRepository.save(issue);
+        counterService.onRelocated(issue, oldC, oldL, req.getCityId(), req.getLocalityId());
+        rollupService.onRelocated(issue, oldC, oldL, req.getCityId(), req.getLocalityId());
+        dataVersion.bumpAfterCommit();
+        issue.setCity(cityRepository.getReferenceById(req.getCityId()));
+        issue.setLocality(localityRepository.getReferenceById(req.getLocalityId()));
+        issueReportRepository.save(issue);
+        return view(issueId);
     }
 
     @Transactional
@@ -96,6 +392,11 @@ public class IssueReportService {
         IssueReport issue = issueReportRepository.findById(issueId)
                 .orElseThrow(() -> new EntityNotFoundException("Issue not found"));
         counterService.onIssueDeleted(issue);
+        rollupService.onIssueDeleted(issue);
+        dataVersion.bumpAfterCommit();
+        confirmationRepository.deleteByIssueId(issueId);
         issueReportRepository.delete(issue);
+        TransactionUtils.runAfterCommit(() ->
+                heatmapIndex.add(issue.getGridCell(), issue.getStatus(), issue.getCategory(), -1));
     }
 }
\ No newline at end of file
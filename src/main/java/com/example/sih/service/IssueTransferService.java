@@ -0,0 +1,146 @@
+package com.example.sih.service;
+
+import com.example.sih.dto.ImportResult;
+import com.example.sih.dto.IssueFilter;
+import com.example.sih.dto.IssueRecord;
+import com.example.sih.repository.IssueReportJdbcRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * NDJSON dump and reload of issue_report. Both directions work on one row (export) or one
+ * chunk (import) at a time, so heap use stays flat regardless of table size.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IssueTransferService {
+    private final IssueReportJdbcRepository jdbcRepository;
+    private final RecalculationJobService recalculationJobService;
+    private final HeatmapIndex heatmapIndex;
+    private final RollupService rollupService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${issues.import.chunk-size:1000}")
+    private int chunkSize;
+
+    // readOnly transaction keeps autocommit off so the driver streams through a cursor
+    @Transactional(readOnly = true)
+    public long exportIssues(IssueFilter filter, OutputStream out) {
+        long[] written = {0};
+        jdbcRepository.streamIssues(filter, rec -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(rec));
+                out.write('\n');
+                written[0]++;
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        return written[0];
+    }
+
+    /**
+     * Reads NDJSON line by line and commits every {@code chunkSize} rows in its own transaction.
+     * On a malformed line the chunks before it stay committed and the error is reported back.
+     * A chunk the database refuses (bad foreign key, constraint) is rolled back, counted as
+     * rejected, and the import carries on with the next one. Whatever happens, the id sequence
+     * and everything derived from issue_report (counters, heatmap, rollup) are rebuilt at the end
+     * since imported rows bypass {@link CounterService}. Counters are rebuilt range by range under
+     * REPEATABLE READ like a recalculation job, so live issue writes during the rebuild are kept.
+     */
+    public ImportResult importIssues(InputStream in) throws IOException {
+        long read = 0;
+        long inserted = 0;
+        long rejected = 0;
+        String error = null;
+        List<IssueRecord> chunk = new ArrayList<>(chunkSize);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        long lineNo = 0;
+        try {
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) continue;
+                IssueRecord rec;
+                try {
+                    rec = objectMapper.readValue(line, IssueRecord.class);
+                } catch (JsonProcessingException ex) {
+                    error = "Line " + lineNo + ": " + ex.getOriginalMessage();
+                    break;
+                }
+                String invalid = validate(rec);
+                if (invalid != null) {
+                    error = "Line " + lineNo + ": " + invalid;
+                    break;
+                }
+                chunk.add(rec);
+                read++;
+                if (chunk.size() >= chunkSize) {
+                    try {
+                        inserted += insert(chunk);
+                    } catch (DataAccessException ex) {
+                        rejected += chunk.size();
+                        if (error == null) error = rejection(lineNo, chunk.size(), ex);
+                    }
+                    chunk.clear();
+                }
+            }
+            try {
+                inserted += insert(chunk);
+            } catch (DataAccessException ex) {
+                rejected += chunk.size();
+                if (error == null) error = rejection(lineNo, chunk.size(), ex);
+            }
+        } finally {
+            if (inserted > 0) {
+                jdbcRepository.syncIdSequence();
+                recalculationJobService.recalcAllNow();
+                heatmapIndex.rebuild();
+                rollupService.backfill();
+            }
+        }
+        log.info("Imported {} of {} issue rows, {} rejected{}", inserted, read, rejected,
+                error == null ? "" : " (" + error + ")");
+        return new ImportResult(read, inserted, read - inserted - rejected, rejected, error);
+    }
+
+    private long insert(List<IssueRecord> chunk) {
+        if (chunk.isEmpty()) return 0;
+        Integer n = transactionTemplate.execute(s -> jdbcRepository.insertChunk(chunk));
+        return n == null ? 0 : n;
+    }
+
+    private static String rejection(long lineNo, int rows, DataAccessException ex) {
+        String cause = NestedExceptionUtils.getMostSpecificCause(ex).getMessage();
+        log.warn("Import chunk of {} rows ending at line {} rejected: {}", rows, lineNo, cause);
+        return "Chunk of " + rows + " rows ending at line " + lineNo + " rejected: " + cause;
+    }
+
+    private String validate(IssueRecord r) {
+        if (r.getDescription() == null || r.getDescription().isBlank()) return "description is required";
+        if (r.getLatitude() == null || r.getLongitude() == null) return "latitude and longitude are required";
+        if (r.getStatus() == null) return "status is required";
+        if (r.getCategory() == null) return "category is required";
+        return null;
+    }
+}
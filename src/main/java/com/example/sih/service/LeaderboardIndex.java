@@ -0,0 +1,326 @@
+package com.example.sih.service;
+
+import com.example.sih.dto.LeaderboardRow;
+import com.example.sih.dto.Metric;
+import com.example.sih.entity.City;
+import com.example.sih.entity.Department;
+import com.example.sih.entity.Locality;
+import com.example.sih.repository.CityRepository;
+import com.example.sih.repository.DepartmentRepository;
+import com.example.sih.repository.LocalityRepository;
+import com.example.sih.types.Scope;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory ranked view of the issue counters, kept current by {@link CounterService}.
+ * <p>
+ * Every board holds one skip list per {@link Metric} ordered by score descending, so a
+ * top-K read walks K nodes instead of loading and sorting the whole table. Cities also get
+ * per-capita boards (issues per 100k population) and localities are additionally ranked
+ * within their city. The index is rebuilt from the tables on startup and after a recalculation.
+ * Deltas share a read lock and serialize per entity; a rebuild or a put/remove takes the write
+ * lock, so a delta never lands on a half-cleared index.
+ * <p>
+ * A rebuild reads the tables at a snapshot pinned through the {@link CommitGate}. Deltas are
+ * applied after their commit inside the gate, so each one is either in that snapshot or logged
+ * from the pin on and replayed onto the rebuilt boards. In write-behind mode the deltas still
+ * buffered at the pin are added as well, since the stored counters do not include them yet.
+ */
+@Slf4j
+@Component
+public class LeaderboardIndex {
+    private static final double PER_CAPITA_BASE = 100_000.0;
+
+    private final CityRepository cityRepository;
+    private final LocalityRepository localityRepository;
+    private final DepartmentRepository departmentRepository;
+    private final CounterDeltaBuffer deltaBuffer;
+    private final CommitGate commitGate;
+    private final TransactionTemplate snapshotTransaction;
+
+    private final Map<Scope, ConcurrentHashMap<Long, Entry>> entries = new EnumMap<>(Scope.class);
+    private final Map<Scope, Board> boards = new EnumMap<>(Scope.class);
+    private final Board cityPerCapita = new Board();
+    private final ConcurrentHashMap<Long, Board> localitiesByCity = new ConcurrentHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean loaded;
+    // deltas applied since a running rebuild pinned its snapshot, null when none is running
+    private volatile Queue<Delta> replay;
+
+    {
+        for (Scope scope : Scope.values()) {
+            entries.put(scope, new ConcurrentHashMap<>());
+            boards.put(scope, new Board());
+        }
+    }
+
+    public LeaderboardIndex(CityRepository cityRepository, LocalityRepository localityRepository,
+                            DepartmentRepository departmentRepository, CounterDeltaBuffer deltaBuffer,
+                            CommitGate commitGate, PlatformTransactionManager transactionManager) {
+        this.cityRepository = cityRepository;
+        this.localityRepository = localityRepository;
+        this.departmentRepository = departmentRepository;
+        this.deltaBuffer = deltaBuffer;
+        this.commitGate = commitGate;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTransaction.setReadOnly(true);
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void reload() {
+        Snapshot snapshot;
+        try {
+            snapshot = snapshotTransaction.execute(status -> {
+                Map<Scope, Map<Long, long[]>> buffered = commitGate.pinSnapshot(() -> {
+                    replay = new ConcurrentLinkedQueue<>();
+                    return deltaBuffer.pendingDeltas();
+                });
+                return new Snapshot(cityRepository.findAll(), localityRepository.findAll(),
+                        departmentRepository.findAll(), buffered);
+            });
+        } catch (RuntimeException ex) {
+            replay = null;
+            throw ex;
+        }
+        lock.writeLock().lock();
+        try {
+            loaded = false;
+            for (Scope scope : Scope.values()) {
+                entries.get(scope).clear();
+                boards.get(scope).clear();
+            }
+            cityPerCapita.clear();
+            localitiesByCity.clear();
+            snapshot.cities().forEach(this::put);
+            snapshot.localities().forEach(this::put);
+            snapshot.departments().forEach(this::put);
+            snapshot.buffered().forEach((scope, deltas) -> deltas.forEach((id, d) -> move(scope, id, d[0], d[1])));
+            for (Delta d : replay) move(d.scope(), d.id(), d.active(), d.resolved());
+            loaded = true;
+        } finally {
+            replay = null;
+            lock.writeLock().unlock();
+        }
+        log.debug("Leaderboard index loaded: {} cities, {} localities, {} departments",
+                entries.get(Scope.CITY).size(), entries.get(Scope.LOCALITY).size(),
+                entries.get(Scope.DEPARTMENT).size());
+    }
+
+    public void put(City c) {
+        put(Scope.CITY, new Entry(c.getId(), c.getName(), null, c.getPopulation(),
+                c.getActiveIssueCount(), c.getResolvedIssueCount()));
+    }
+
+    public void put(Locality l) {
+        Long cityId = l.getCity() == null ? null : l.getCity().getId();
+        put(Scope.LOCALITY, new Entry(l.getId(), l.getName(), cityId, null,
+                l.getActiveIssueCount(), l.getResolvedIssueCount()));
+    }
+
+    public void put(Department d) {
+        put(Scope.DEPARTMENT, new Entry(d.getId(), d.getName(), null, null,
+                d.getActiveIssueCount(), d.getResolvedIssueCount()));
+    }
+
+    public void remove(Scope scope, Long id) {
+        lock.writeLock().lock();
+        try {
+            Entry e = entries.get(scope).remove(id);
+            if (e == null) return;
+            for (Board b : boardsOf(scope, e)) b.remove(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void applyDelta(Scope scope, Long id, long activeDelta, long resolvedDelta) {
+        if (activeDelta == 0 && resolvedDelta == 0) return;
+        lock.readLock().lock();
+        try {
+            Queue<Delta> log = replay;
+            if (log != null) log.add(new Delta(scope, id, activeDelta, resolvedDelta));
+            move(scope, id, activeDelta, resolvedDelta);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<LeaderboardRow> top(Scope scope, Metric metric, int limit) {
+        return boards.get(scope).top(metric, limit, entries.get(scope), false);
+    }
+
+    public List<LeaderboardRow> topPerCapita(Metric metric, int limit) {
+        return cityPerCapita.top(metric, limit, entries.get(Scope.CITY), true);
+    }
+
+    public List<LeaderboardRow> topLocalitiesInCity(Long cityId, Metric metric, int limit) {
+        Board b = localitiesByCity.get(cityId);
+        if (b == null) return List.of();
+        return b.top(metric, limit, entries.get(Scope.LOCALITY), false);
+    }
+
+    private void put(Scope scope, Entry e) {
+        if (e.id == null) return;
+        lock.writeLock().lock();
+        try {
+            remove(scope, e.id);
+            entries.get(scope).put(e.id, e);
+            for (Board b : boardsOf(scope, e)) b.add(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Caller holds the lock, shared or exclusive
+    private void move(Scope scope, Long id, long activeDelta, long resolvedDelta) {
+        Entry e = entries.get(scope).get(id);
+        if (e == null) return;
+        synchronized (e) {
+            List<Board> owners = boardsOf(scope, e);
+            Map<Board, EnumMap<Metric, Rank>> before = new HashMap<>();
+            for (Board b : owners) before.put(b, b.ranksOf(e));
+            e.active += activeDelta;
+            e.resolved += resolvedDelta;
+            for (Board b : owners) b.move(before.get(b), b.ranksOf(e));
+        }
+    }
+
+    private List<Board> boardsOf(Scope scope, Entry e) {
+        List<Board> owners = new ArrayList<>(2);
+        owners.add(boards.get(scope));
+        if (scope == Scope.CITY && e.population != null && e.population > 0) owners.add(cityPerCapita);
+        if (scope == Scope.LOCALITY && e.cityId != null) {
+            owners.add(localitiesByCity.computeIfAbsent(e.cityId, k -> new Board()));
+        }
+        return owners;
+    }
+
+    private static long value(Metric metric, long active, long resolved) {
+        return switch (metric) {
+            case ACTIVE -> active;
+            case RESOLVED -> resolved;
+            default -> active + resolved;
+        };
+    }
+
+    private static final class Entry {
+        private final Long id;
+        private final String name;
+        private final Long cityId;
+        private final Long population;
+        private volatile long active;
+        private volatile long resolved;
+
+        private Entry(Long id, String name, Long cityId, Long population, Long active, Long resolved) {
+            this.id = id;
+            this.name = name;
+            this.cityId = cityId;
+            this.population = population;
+            this.active = active == null ? 0 : active;
+            this.resolved = resolved == null ? 0 : resolved;
+        }
+    }
+
+    private record Snapshot(List<City> cities, List<Locality> localities, List<Department> departments,
+                            Map<Scope, Map<Long, long[]>> buffered) {
+    }
+
+    private record Delta(Scope scope, Long id, long active, long resolved) {
+    }
+
+    private record Rank(double score, long id) {
+        private static final Comparator<Rank> ORDER = Comparator.comparingDouble(Rank::score).reversed()
+                .thenComparingLong(Rank::id);
+    }
+
+    private final class Board {
+        private final Map<Metric, ConcurrentSkipListSet<Rank>> ranks = new EnumMap<>(Metric.class);
+
+        private Board() {
+            for (Metric m : Metric.values()) ranks.put(m, new ConcurrentSkipListSet<>(Rank.ORDER));
+        }
+
+        private boolean perCapita() {
+            return this == cityPerCapita;
+        }
+
+        private EnumMap<Metric, Rank> ranksOf(Entry e) {
+            EnumMap<Metric, Rank> out = new EnumMap<>(Metric.class);
+            for (Metric m : Metric.values()) {
+                double score = value(m, e.active, e.resolved);
+                if (perCapita()) score = score * PER_CAPITA_BASE / e.population;
+                out.put(m, new Rank(score, e.id));
+            }
+            return out;
+        }
+
+        private void add(Entry e) {
+            ranksOf(e).forEach((m, r) -> ranks.get(m).add(r));
+        }
+
+        private void remove(Entry e) {
+            removeRanks(ranksOf(e));
+        }
+
+        private void removeRanks(EnumMap<Metric, Rank> old) {
+            old.forEach((m, r) -> ranks.get(m).remove(r));
+        }
+
+        // Re-ranks only the metrics whose score changed; an unchanged Rank is the same set element,
+        // so adding then removing it would drop the entry. The new rank goes in before the old one
+        // comes out so readers never miss the entry.
+        private void move(EnumMap<Metric, Rank> before, EnumMap<Metric, Rank> after) {
+            after.forEach((m, r) -> {
+                Rank old = before.get(m);
+                if (r.equals(old)) return;
+                ranks.get(m).add(r);
+                ranks.get(m).remove(old);
+            });
+        }
+
+        private void clear() {
+            ranks.values().forEach(ConcurrentSkipListSet::clear);
+        }
+
+        private List<LeaderboardRow> top(Metric metric, int limit, Map<Long, Entry> source, boolean withPerCapita) {
+            List<LeaderboardRow> out = new ArrayList<>(Math.max(0, limit));
+            Set<Long> seen = new HashSet<>();
+            for (Rank r : ranks.get(metric)) {
+                if (out.size() >= limit) break;
+                Entry e = source.get(r.id());
+                if (e == null || !seen.add(r.id())) continue;
+                LeaderboardRow row = new LeaderboardRow(e.id, e.name, e.active, e.resolved);
+                if (withPerCapita) row.setPerCapita(r.score());
+                out.add(row);
+            }
+            return out;
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package com.example.sih.service;
 
 import com.example.sih.entity.City;
+import com.example.sih.dto.JobStatus;
 import com.example.sih.entity.Locality;
 import com.example.sih.repository.LocalityRepository;
+import com.example.sih.types.Scope;
+import com.example.sih.util.TransactionUtils;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -14,11 +17,20 @@ import java.util.List;
 @RequiredArgsConstructor
 public class LocalityService {
     private final LocalityRepository localityRepository;
-    private final RecalculationService recalculationService;
+    private final RecalculationJobService recalculationJobService;
+    private final LeaderboardIndex leaderboardIndex;
+    private final DataVersion dataVersion;
+    private final AnalyticsCache analyticsCache;
+    private final ReferenceDataCache referenceData;
 
     @Transactional
     public Locality createLocality(Locality locality) {
-        return localityRepository.save(locality);
+        Locality saved = localityRepository.save(locality);
+        TransactionUtils.runAfterCommit(() -> leaderboardIndex.put(saved));
+        analyticsCache.invalidateAfterCommit(Scope.LOCALITY, saved.getId());
+        referenceData.invalidateAfterCommit();
+        dataVersion.bumpAfterCommit();
+        return saved;
     }
 
     @Transactional(readOnly = true)
@@ -40,10 +52,13 @@ public class LocalityService {
     @Transactional
     public void deleteLocality(Long id) {
         localityRepository.deleteById(id);
+        TransactionUtils.runAfterCommit(() -> leaderboardIndex.remove(Scope.LOCALITY, id));
+        analyticsCache.invalidateAfterCommit(Scope.LOCALITY, id);
+        referenceData.invalidateAfterCommit();
+        dataVersion.bumpAfterCommit();
     }
 
-    @Transactional
-    public void recalculateLocalityCounts() {
-        recalculationService.recalcLocalities();
+    public JobStatus recalculateLocalityCounts() {
+        return recalculationJobService.submit(Scope.LOCALITY);
     }
 }
\ No newline at end of file
@@ -0,0 +1,281 @@
+package com.example.sih.service;
+
+import com.example.sih.dto.JobStatus;
+import com.example.sih.repository.CityRepository;
+import com.example.sih.repository.DepartmentRepository;
+import com.example.sih.repository.LocalityRepository;
+import com.example.sih.repository.ResolutionHistogramRepository;
+import com.example.sih.types.JobState;
+import com.example.sih.types.Scope;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Background counter recalculation. A job walks the scope's id space in ranges of
+ * {@code recalc.job.chunk-size} ids and commits each range on its own, so row locks are held
+ * for one small UPDATE at a time and no request thread waits. At most one job runs per scope;
+ * submitting while one is running returns the running job. Cancellation takes effect between
+ * chunks and keeps the chunks already committed.
+ * <p>
+ * Like {@link DriftReconciler}, each range runs under REPEATABLE READ, so a counter incremented by
+ * a concurrent issue write after the range's snapshot is never overwritten with the stale count.
+ * The range is rolled back and retried on a fresh snapshot, up to {@code recalc.job.max-attempts}.
+ * In write-behind mode the range's snapshot is pinned through {@link CounterDeltaBuffer#beforeRebuild},
+ * so deltas still buffered for commits the snapshot counts are dropped instead of flushed on top.
+ */
+@Slf4j
+@Service
+public class RecalculationJobService {
+    private static final int MAX_RETAINED_JOBS = 100;
+
+    private final CityRepository cityRepo;
+    private final LocalityRepository locRepo;
+    private final DepartmentRepository depRepo;
+    private final ResolutionHistogramRepository histogramRepo;
+    private final CounterDeltaBuffer deltaBuffer;
+    private final LeaderboardIndex leaderboardIndex;
+    private final DataVersion dataVersion;
+    private final AnalyticsCache analyticsCache;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor executor;
+
+    @Value("${recalc.job.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${recalc.job.max-attempts:5}")
+    private int maxAttempts;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final Map<Scope, Job> running = new ConcurrentHashMap<>();
+
+    public RecalculationJobService(CityRepository cityRepo, LocalityRepository locRepo, DepartmentRepository depRepo,
+                                   ResolutionHistogramRepository histogramRepo, CounterDeltaBuffer deltaBuffer,
+                                   LeaderboardIndex leaderboardIndex,
+                                   DataVersion dataVersion, AnalyticsCache analyticsCache,
+                                   PlatformTransactionManager transactionManager,
+                                   @Qualifier("recalcExecutor") TaskExecutor executor) {
+        this.cityRepo = cityRepo;
+        this.locRepo = locRepo;
+        this.depRepo = depRepo;
+        this.histogramRepo = histogramRepo;
+        this.deltaBuffer = deltaBuffer;
+        this.leaderboardIndex = leaderboardIndex;
+        this.dataVersion = dataVersion;
+        this.analyticsCache = analyticsCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.executor = executor;
+    }
+
+    public synchronized JobStatus submit(Scope scope) {
+        Job current = running.get(scope);
+        if (current != null) return current.status();
+        Job job = new Job(UUID.randomUUID().toString(), scope);
+        jobs.put(job.id, job);
+        running.put(scope, job);
+        pruneFinished();
+        executor.execute(() -> run(job));
+        return job.status();
+    }
+
+    public List<JobStatus> submitAll() {
+        return List.of(submit(Scope.CITY), submit(Scope.LOCALITY), submit(Scope.DEPARTMENT));
+    }
+
+    public JobStatus get(String id) {
+        return find(id).status();
+    }
+
+    public JobStatus cancel(String id) {
+        Job job = find(id);
+        job.cancelRequested = true;
+        return job.status();
+    }
+
+    public List<JobStatus> list() {
+        return jobs.values().stream()
+                .sorted(Comparator.comparing((Job j) -> j.startedAt).reversed())
+                .map(Job::status)
+                .toList();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running.values().forEach(j -> j.cancelRequested = true);
+    }
+
+    private Job find(String id) {
+        Job job = jobs.get(id);
+        if (job == null) throw new EntityNotFoundException("Job not found");
+        return job;
+    }
+
+    private void run(Job job) {
+        try {
+            Long min = minId(job.scope);
+            Long max = maxId(job.scope);
+            if (min != null && max != null) {
+                job.chunksTotal = (max - min) / chunkSize + 1;
+                for (long from = min; from <= max; from += chunkSize) {
+                    if (job.cancelRequested) {
+                        job.finish(JobState.CANCELLED, null);
+                        return;
+                    }
+                    long lo = from;
+                    long hi = Math.min(max, from + chunkSize - 1);
+                    job.rowsCorrected += recalcRangeWithRetry(job.scope, lo, hi);
+                    job.idsDone += hi - lo + 1;
+                    job.chunksDone++;
+                }
+            }
+            job.finish(JobState.SUCCEEDED, null);
+        } catch (RuntimeException ex) {
+            log.warn("Recalculation job {} ({}) failed: {}", job.id, job.scope, ex.getMessage());
+            job.finish(JobState.FAILED, ex.getMessage());
+        } finally {
+            running.remove(job.scope, job);
+            // committed chunks are visible either way, so derived views follow them
+            refreshDerived();
+            log.info("Recalculation job {} ({}) {}: {} rows corrected in {} chunks",
+                    job.id, job.scope, job.state, job.rowsCorrected, job.chunksDone);
+        }
+    }
+
+    /**
+     * Rebuilds every scope range by range on the calling thread, exactly as a job does, and
+     * returns the rows corrected. For bulk loads that bypassed {@link CounterService}.
+     */
+    public long recalcAllNow() {
+        long corrected = 0;
+        try {
+            for (Scope scope : Scope.values()) {
+                Long min = minId(scope);
+                Long max = maxId(scope);
+                if (min == null || max == null) continue;
+                for (long from = min; from <= max; from += chunkSize)
+                    corrected += recalcRangeWithRetry(scope, from, Math.min(max, from + chunkSize - 1));
+            }
+        } finally {
+            refreshDerived();
+        }
+        return corrected;
+    }
+
+    private void refreshDerived() {
+        leaderboardIndex.reload();
+        dataVersion.bump();
+        analyticsCache.invalidateAll();
+    }
+
+    private int recalcRangeWithRetry(Scope scope, long from, long to) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Integer corrected = transactionTemplate.execute(s -> {
+                    deltaBuffer.beforeRebuild(scope, from, to);
+                    return recalcRange(scope, from, to);
+                });
+                return corrected == null ? 0 : corrected;
+            } catch (ConcurrencyFailureException ex) {
+                if (attempt >= maxAttempts) throw ex;
+                log.debug("Recalculation of {} ids {}..{} conflicted with a concurrent write, retrying",
+                        scope, from, to);
+            }
+        }
+    }
+
+    private int recalcRange(Scope scope, long from, long to) {
+        return switch (scope) {
+            case CITY -> cityRepo.recalcCountersInRange(from, to);
+            case LOCALITY -> {
+                int n = locRepo.recalcCountersInRange(from, to);
+                histogramRepo.deleteScopeRange(Scope.LOCALITY, from, to);
+                histogramRepo.rebuildLocalitiesInRange(from, to);
+                yield n;
+            }
+            case DEPARTMENT -> {
+                int n = depRepo.recalcCountersInRange(from, to);
+                histogramRepo.deleteScopeRange(Scope.DEPARTMENT, from, to);
+                histogramRepo.rebuildDepartmentsInRange(from, to);
+                yield n;
+            }
+        };
+    }
+
+    private Long minId(Scope scope) {
+        return switch (scope) {
+            case CITY -> cityRepo.minId();
+            case LOCALITY -> locRepo.minId();
+            case DEPARTMENT -> depRepo.minId();
+        };
+    }
+
+    private Long maxId(Scope scope) {
+        return switch (scope) {
+            case CITY -> cityRepo.maxId();
+            case LOCALITY -> locRepo.maxId();
+            case DEPARTMENT -> depRepo.maxId();
+        };
+    }
+
+    private void pruneFinished() {
+        if (jobs.size() <= MAX_RETAINED_JOBS) return;
+        jobs.values().stream()
+                .filter(j -> j.state != JobState.RUNNING)
+                .sorted(Comparator.comparing((Job j) -> j.startedAt))
+                .limit(jobs.size() - MAX_RETAINED_JOBS)
+                .forEach(j -> jobs.remove(j.id));
+    }
+
+    private static final class Job {
+        final String id;
+        final Scope scope;
+        final LocalDateTime startedAt = LocalDateTime.now();
+        final long startNanos = System.nanoTime();
+        volatile JobState state = JobState.RUNNING;
+        volatile boolean cancelRequested;
+        volatile long chunksTotal;
+        volatile long chunksDone;
+        volatile long idsDone;
+        volatile long rowsCorrected;
+        volatile LocalDateTime finishedAt;
+        volatile long finishedNanos;
+        volatile String error;
+
+        Job(String id, Scope scope) {
+            this.id = id;
+            this.scope = scope;
+        }
+
+        void finish(JobState state, String error) {
+            this.error = error;
+            this.finishedNanos = System.nanoTime();
+            this.finishedAt = LocalDateTime.now();
+            this.state = state;
+        }
+
+        JobStatus status() {
+            long end = state == JobState.RUNNING ? System.nanoTime() : finishedNanos;
+            double seconds = Math.max(1e-9, (end - startNanos) / 1e9);
+            double progress = state == JobState.SUCCEEDED ? 1.0
+                    : chunksTotal == 0 ? 0.0 : chunksDone * 1.0 / chunksTotal;
+            return new JobStatus(id, scope, state, chunksDone, chunksTotal, progress, rowsCorrected,
+                    idsDone / seconds, startedAt, finishedAt, error);
+        }
+    }
+}
@@ -2,71 +2,94 @@ package com.example.sih.service;
 
 import com.example.sih.repository.CityRepository;
 import com.example.sih.repository.DepartmentRepository;
-import com.example.sih.repository.IssueReportRepository;
 import com.example.sih.repository.LocalityRepository;
-import lombok.RequiredArgsConstructor;
+import com.example.sih.repository.ResolutionHistogramRepository;
+import com.example.sih.types.Scope;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Rebuilds counters from issue_report. Each scope is one set-based UPDATE over an aggregate of
+ * issue_report that covers every entity, so an entity that lost all its issues is reset to zero
+ * and the cost no longer grows with round trips per entity.
+ */
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class RecalculationService {
-    private final IssueReportRepository repo;
     private final CityRepository cityRepo;
     private final LocalityRepository locRepo;
     private final DepartmentRepository depRepo;
+    private final ResolutionHistogramRepository histogramRepo;
+    private final LeaderboardIndex leaderboardIndex;
+    private final DataVersion dataVersion;
+    private final AnalyticsCache analyticsCache;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor executor;
 
-    @Transactional
-    public void recalcCities() {
-        var rows = repo.aggregateCountsByCity();
-        for(Object[] r: rows){
-            Long cityId=(Long)r[0];
-            Long active=(Long)r[1];
-            Long resolved=(Long)r[2];
-            Long currentA = cityRepo.getActiveIssueCount(cityId);
-            Long currentR = cityRepo.getResolvedIssueCount(cityId);
-            long deltaA = active-(currentA==null?0:currentA);
-            long deltaR = resolved-(currentR==null?0:currentR);
-            if(deltaA>0) cityRepo.incrementActiveIssueCount(cityId,deltaA);
-            else if(deltaA<0) cityRepo.decrementActiveIssueCount(cityId,-deltaA);
-            if(deltaR>0) cityRepo.incrementResolvedIssueCount(cityId,deltaR);
-            else if(deltaR<0) cityRepo.decrementResolvedIssueCount(cityId,-deltaR);
-        }
+    public RecalculationService(CityRepository cityRepo, LocalityRepository locRepo, DepartmentRepository depRepo,
+                                ResolutionHistogramRepository histogramRepo, LeaderboardIndex leaderboardIndex,
+                                DataVersion dataVersion, AnalyticsCache analyticsCache,
+                                TransactionTemplate transactionTemplate,
+                                @Qualifier("recalcExecutor") TaskExecutor executor) {
+        this.cityRepo = cityRepo;
+        this.locRepo = locRepo;
+        this.depRepo = depRepo;
+        this.histogramRepo = histogramRepo;
+        this.leaderboardIndex = leaderboardIndex;
+        this.dataVersion = dataVersion;
+        this.analyticsCache = analyticsCache;
+        this.transactionTemplate = transactionTemplate;
+        this.executor = executor;
     }
 
-    @Transactional
-    public void recalcLocalities() {
-        var rows = repo.aggregateCountsByLocality();
-        for (Object[] r : rows) {
-            Long localityId = (Long) r[0];
-            Long active = (Long) r[1];
-            Long resolved = (Long) r[2];
-            Long currentA = locRepo.getActiveIssueCount(localityId);
-            Long currentR = locRepo.getResolvedIssueCount(localityId);
-            long deltaA = active - (currentA == null ? 0 : currentA);
-            long deltaR = resolved - (currentR == null ? 0 : currentR);
-            if (deltaA > 0) locRepo.incrementActiveIssueCount(localityId, deltaA);
-            else if (deltaA < 0) locRepo.decrementActiveIssueCount(localityId, -deltaA);
-            if (deltaR > 0) locRepo.incrementResolvedIssueCount(localityId, deltaR);
-            else if (deltaR < 0) locRepo.decrementResolvedIssueCount(localityId, -deltaR);
+    // The three scopes touch disjoint tables, so they run concurrently, each in its own transaction.
+    // Derived state is refreshed once, after all of them have finished, committed or not.
+    public void recalcAll() {
+        long start = System.currentTimeMillis();
+        CompletableFuture<?>[] tasks = {
+                inTransaction(this::doRecalcCities),
+                inTransaction(this::doRecalcLocalities),
+                inTransaction(this::doRecalcDepartments)
+        };
+        try {
+            CompletableFuture.allOf(tasks).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) throw cause;
+            throw ex;
+        } finally {
+            leaderboardIndex.reload();
+            dataVersion.bump();
+            analyticsCache.invalidateAll();
         }
+        log.info("Recalculated all counters in {} ms", System.currentTimeMillis() - start);
     }
 
-    @Transactional
-    public void recalcDepartments() {
-        var rows = repo.aggregateCountsByDepartment();
-        for (Object[] r : rows) {
-            Long depId = (Long) r[0];
-            Long active = (Long) r[1];
-            Long resolved = (Long) r[2];
-            Long currentA = depRepo.getActiveIssueCount(depId);
-            Long currentR = depRepo.getResolvedIssueCount(depId);
-            long deltaA = active - (currentA == null ? 0 : currentA);
-            long deltaR = resolved - (currentR == null ? 0 : currentR);
-            if (deltaA > 0) depRepo.incrementActiveIssueCount(depId, deltaA);
-            else if (deltaA < 0) depRepo.decrementActiveIssueCount(depId, -deltaA);
-            if (deltaR > 0) depRepo.incrementResolvedIssueCount(depId, deltaR);
-            else if (deltaR < 0) depRepo.decrementResolvedIssueCount(depId, -deltaR);
-        }
+    private CompletableFuture<Void> inTransaction(Runnable work) {
+        return CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(s -> work.run()), executor);
+    }
+
+    private void doRecalcCities() {
+        int changed = cityRepo.recalcCounters();
+        log.debug("City counters recalculated, {} rows corrected", changed);
+    }
+
+    private void doRecalcLocalities() {
+        int changed = locRepo.recalcCounters();
+        histogramRepo.deleteScope(Scope.LOCALITY);
+        histogramRepo.rebuildLocalities();
+        log.debug("Locality counters recalculated, {} rows corrected", changed);
+    }
+
+    private void doRecalcDepartments() {
+        int changed = depRepo.recalcCounters();
+        histogramRepo.deleteScope(Scope.DEPARTMENT);
+        histogramRepo.rebuildDepartments();
+        log.debug("Department counters recalculated, {} rows corrected", changed);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,145 @@
+package com.example.sih.service;
+
+import com.example.sih.repository.CityRepository;
+import com.example.sih.repository.DepartmentRepository;
+import com.example.sih.repository.LocalityRepository;
+import com.example.sih.types.IssueCategory;
+import com.example.sih.util.TransactionUtils;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-local copy of the reference data the write path needs: which cities exist, which
+ * city each locality belongs to and which department handles each category. It is loaded
+ * lazily as one immutable snapshot and dropped whenever a city, locality or department is
+ * created or deleted through the entity services. Changes made elsewhere (plain SQL, another
+ * instance) are picked up once the snapshot is older than {@code reference.cache.ttl-ms}.
+ * <p>
+ * Only one caller loads at a time. While it reloads an expired snapshot the others keep using
+ * the old one; with no snapshot at all they wait for that load instead of starting their own.
+ */
+@Component
+public class ReferenceDataCache {
+    private final CityRepository cityRepository;
+    private final LocalityRepository localityRepository;
+    private final DepartmentRepository departmentRepository;
+    private final long ttlMs;
+
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Snapshot snapshot;
+    private CompletableFuture<Snapshot> loading; // guarded by this
+
+    public ReferenceDataCache(CityRepository cityRepository, LocalityRepository localityRepository,
+                              DepartmentRepository departmentRepository,
+                              @Value("${reference.cache.ttl-ms:60000}") long ttlMs) {
+        this.cityRepository = cityRepository;
+        this.localityRepository = localityRepository;
+        this.departmentRepository = departmentRepository;
+        this.ttlMs = ttlMs;
+    }
+
+    public void requireCity(Long cityId) {
+        if (cityId == null || !current().cityIds.contains(cityId)) throw new EntityNotFoundException("City not found");
+    }
+
+    // Validates the locality exists and sits in the given city
+    public void requireLocalityInCity(Long localityId, Long cityId) {
+        requireCity(cityId);
+        Long owner = localityId == null ? null : current().localityCity.get(localityId);
+        if (owner == null) throw new EntityNotFoundException("Locality not found");
+        if (!owner.equals(cityId))
+            throw new IllegalArgumentException("Locality " + localityId + " does not belong to city " + cityId);
+    }
+
+    public Long departmentFor(IssueCategory category) {
+        Long id = category == null ? null : current().departmentByCategory.get(category);
+        if (id == null) throw new EntityNotFoundException("No dept for category " + category);
+        return id;
+    }
+
+    public synchronized void invalidate() {
+        generation.incrementAndGet();
+        snapshot = null;
+        // callers from now on must not wait for a load that started before the change
+        loading = null;
+    }
+
+    public void invalidateAfterCommit() {
+        TransactionUtils.runAfterCommit(this::invalidate);
+    }
+
+    private Snapshot current() {
+        while (true) {
+            Snapshot s = snapshot;
+            if (s != null && !expired(s)) return s;
+            CompletableFuture<Snapshot> pending;
+            long gen;
+            boolean leader = false;
+            synchronized (this) {
+                s = snapshot;
+                if (s != null && !expired(s)) return s;
+                if (loading == null) {
+                    loading = new CompletableFuture<>();
+                    leader = true;
+                }
+                pending = loading;
+                gen = generation.get();
+            }
+            if (leader) return loadInto(pending, gen);
+            if (s != null) return s;
+            try {
+                return pending.join();
+            } catch (CompletionException ex) {
+                // the load we waited on failed, try again
+            }
+        }
+    }
+
+    private Snapshot loadInto(CompletableFuture<Snapshot> pending, long gen) {
+        try {
+            Snapshot s = load();
+            synchronized (this) {
+                if (loading == pending) loading = null;
+                // don't publish a snapshot that raced with an invalidation
+                if (generation.get() == gen) snapshot = s;
+            }
+            pending.complete(s);
+            return s;
+        } catch (RuntimeException ex) {
+            synchronized (this) {
+                if (loading == pending) loading = null;
+            }
+            pending.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    private boolean expired(Snapshot s) {
+        return System.currentTimeMillis() - s.loadedAt >= ttlMs;
+    }
+
+    private Snapshot load() {
+        Set<Long> cityIds = new HashSet<>(cityRepository.findAllIds());
+        Map<Long, Long> localityCity = new HashMap<>();
+        for (Object[] r : localityRepository.findAllCityIds()) localityCity.put((Long) r[0], (Long) r[1]);
+        Map<IssueCategory, Long> departmentByCategory = new EnumMap<>(IssueCategory.class);
+        for (Object[] r : departmentRepository.findCategoryAssignments())
+            departmentByCategory.putIfAbsent((IssueCategory) r[0], (Long) r[1]);
+        return new Snapshot(Set.copyOf(cityIds), Map.copyOf(localityCity), departmentByCategory,
+                System.currentTimeMillis());
+    }
+
+    private record Snapshot(Set<Long> cityIds, Map<Long, Long> localityCity,
+                            Map<IssueCategory, Long> departmentByCategory, long loadedAt) {
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.sih.service;
+
+import com.example.sih.dto.IssueTransition;
+import com.example.sih.entity.IssueReport;
+import com.example.sih.repository.IssueDailyRollupRepository;
+import com.example.sih.types.IssueCategory;
+import com.example.sih.types.Status;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps issue_daily_rollup in step with issue mutations. Each mutation becomes a signed
+ * (created, resolved, rejected) delta on the affected day rows, written as upserts.
+ */
+@Slf4j
+@Service
+public class RollupService {
+    private final IssueDailyRollupRepository rollupRepository;
+    private final DataVersion dataVersion;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${recalc.job.max-attempts:5}")
+    private int maxAttempts;
+
+    public RollupService(IssueDailyRollupRepository rollupRepository, DataVersion dataVersion,
+                         PlatformTransactionManager transactionManager) {
+        this.rollupRepository = rollupRepository;
+        this.dataVersion = dataVersion;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    @Transactional
+    public void onIssuesCreated(Collection<IssueReport> issues) {
+        Map<RollupKey, Long> created = new HashMap<>();
+        for (IssueReport i : issues) {
+            RollupKey key = new RollupKey(day(i.getCreatedAt()), i.getCity().getId(), i.getLocality().getId(),
+                    i.getDepartment().getId(), i.getCategory());
+            created.merge(key, 1L, Long::sum);
+        }
+        created.forEach((k, n) -> upsert(k, n, 0, 0));
+    }
+
+    @Transactional
+    public void onIssueCreated(IssueReport issue) {
+        apply(issue, issue.getCity().getId(), issue.getLocality().getId(), 1);
+    }
+
+    @Transactional
+    public void onIssueDeleted(IssueReport issue) {
+        apply(issue, issue.getCity().getId(), issue.getLocality().getId(), -1);
+    }
+
+    @Transactional
+    public void onStatusTransitions(Collection<IssueTransition> changes, Status to, LocalDateTime at) {
+        Map<RollupKey, long[]> deltas = new HashMap<>();
+        for (IssueTransition c : changes) {
+            if (c.getFrom() == to) continue;
+            if (c.getFrom() == Status.RESOLVED) closed(deltas, c, c.getResolvedAt(), -1, 0);
+            if (c.getFrom() == Status.REJECTED) closed(deltas, c, c.getRejectedAt(), 0, -1);
+            if (to == Status.RESOLVED) closed(deltas, c, at, 1, 0);
+            if (to == Status.REJECTED) closed(deltas, c, at, 0, 1);
+        }
+        deltas.forEach((k, d) -> {
+            if (d[0] != 0 || d[1] != 0) upsert(k, 0, d[0], d[1]);
+        });
+    }
+
+    @Transactional
+    public void onRelocated(IssueReport issue, Long oldCityId, Long oldLocalityId, Long newCityId, Long newLocalityId) {
+        if (oldCityId.equals(newCityId) && oldLocalityId.equals(newLocalityId)) return;
+        apply(issue, oldCityId, oldLocalityId, -1);
+        apply(issue, newCityId, newLocalityId, 1);
+    }
+
+    /**
+     * Rebuilds the whole rollup from issue_report. The table lock is taken before the REPEATABLE
+     * READ snapshot, so every issue write that already upserted a rollup row has committed and is
+     * counted, and every later one waits and adds its delta on top of the rebuilt rows. A conflict
+     * (deadlock victim, serialization failure) is retried on a fresh snapshot, up to
+     * {@code recalc.job.max-attempts}.
+     */
+    public int backfill() {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Integer rows = transactionTemplate.execute(s -> {
+                    rollupRepository.lockForRebuild();
+                    rollupRepository.deleteAllRows();
+                    return rollupRepository.backfill();
+                });
+                log.info("Issue daily rollup rebuilt: {} rows", rows);
+                dataVersion.bump();
+                return rows == null ? 0 : rows;
+            } catch (ConcurrencyFailureException ex) {
+                if (attempt >= maxAttempts) throw ex;
+                log.debug("Rollup rebuild conflicted with a concurrent write, retrying");
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (rollupRepository.count() == 0) backfill();
+    }
+
+    private void apply(IssueReport issue, Long cityId, Long localityId, long sign) {
+        Long deptId = issue.getDepartment().getId();
+        IssueCategory category = issue.getCategory();
+        upsert(new RollupKey(day(issue.getCreatedAt()), cityId, localityId, deptId, category), sign, 0, 0);
+        if (issue.getStatus() == Status.RESOLVED && issue.getResolvedAt() != null)
+            upsert(new RollupKey(day(issue.getResolvedAt()), cityId, localityId, deptId, category), 0, sign, 0);
+        if (issue.getStatus() == Status.REJECTED)
+            upsert(new RollupKey(day(rejectedDay(issue)), cityId, localityId, deptId, category), 0, 0, sign);
+    }
+
+    private static void closed(Map<RollupKey, long[]> deltas, IssueTransition c, LocalDateTime at,
+                               long resolved, long rejected) {
+        if (at == null) return;
+        long[] d = deltas.computeIfAbsent(new RollupKey(day(at), c.getCityId(), c.getLocalityId(),
+                c.getDepartmentId(), c.getCategory()), k -> new long[2]);
+        d[0] += resolved;
+        d[1] += rejected;
+    }
+
+    private void upsert(RollupKey k, long created, long resolved, long rejected) {
+        rollupRepository.upsert(k.day(), k.cityId(), k.localityId(), k.departmentId(), k.category().name(),
+                created, resolved, rejected);
+    }
+
+    private static LocalDateTime rejectedDay(IssueReport issue) {
+        return issue.getRejectedAt() != null ? issue.getRejectedAt() : issue.getUpdatedAt();
+    }
+
+    private static LocalDate day(LocalDateTime t) {
+        return (t == null ? LocalDateTime.now() : t).toLocalDate();
+    }
+
+    private record RollupKey(LocalDate day, Long cityId, Long localityId, Long departmentId, IssueCategory category) {
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.sih.service;
+
+import com.example.sih.dto.Granularity;
+import com.example.sih.dto.SeriesMeasure;
+import com.example.sih.dto.TimeSeriesPoint;
+import com.example.sih.repository.IssueDailyRollupRepository;
+import com.example.sih.repository.IssueReportJdbcRepository;
+import com.example.sih.types.Scope;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Bucketed issue activity for one city, locality or department. Day, week and month series
+ * are folded from issue_daily_rollup rows inside the range; hourly series read issue_report
+ * directly since the rollup is per day. Backlog is an opening balance (one aggregate over
+ * the rollup before the range) plus a running sum of net deltas, so it never costs one
+ * query per bucket.
+ */
+@Service
+@RequiredArgsConstructor
+public class TimeSeriesService {
+    public static final int MAX_BUCKETS = 2_000;
+    private static final int DEFAULT_DAYS = 30;
+
+    private final IssueDailyRollupRepository rollupRepository;
+    private final IssueReportJdbcRepository jdbcRepository;
+
+    @Transactional(readOnly = true)
+    public List<TimeSeriesPoint> series(Scope scope, Long id, SeriesMeasure measure, Granularity granularity,
+                                        LocalDate from, LocalDate to) {
+        if (id == null) throw new IllegalArgumentException("id is required");
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(DEFAULT_DAYS - 1);
+        if (start.isAfter(end)) throw new IllegalArgumentException("from must not be after to");
+
+        // widen to whole buckets so the first and last points are not partial
+        start = bucketStart(start, granularity);
+        end = bucketStart(end, granularity);
+        List<LocalDateTime> buckets = buckets(start.atStartOfDay(), end.atStartOfDay(), granularity);
+
+        // bucket start -> (created, resolved, rejected)
+        TreeMap<LocalDateTime, long[]> deltas = new TreeMap<>();
+        if (granularity == Granularity.HOUR) {
+            LocalDateTime rangeEnd = end.plusDays(1).atStartOfDay();
+            for (Object[] r : jdbcRepository.hourlyDeltas(scope, id, start.atStartOfDay(), rangeEnd))
+                add(deltas, (LocalDateTime) r[0], (Long) r[1], (Long) r[2], (Long) r[3]);
+        } else {
+            LocalDate rangeEnd = next(end.atStartOfDay(), granularity).toLocalDate().minusDays(1);
+            for (Object[] r : daily(scope, id, start, rangeEnd))
+                add(deltas, bucketStart((LocalDate) r[0], granularity).atStartOfDay(),
+                        (Long) r[1], (Long) r[2], (Long) r[3]);
+        }
+
+        long backlog = measure == SeriesMeasure.BACKLOG ? backlogBefore(scope, id, start) : 0;
+        List<TimeSeriesPoint> out = new ArrayList<>(buckets.size());
+        for (LocalDateTime b : buckets) {
+            long[] d = deltas.getOrDefault(b, new long[3]);
+            long value = switch (measure) {
+                case CREATED -> d[0];
+                case RESOLVED -> d[1];
+                case BACKLOG -> backlog += d[0] - d[1] - d[2];
+            };
+            out.add(granularity == Granularity.HOUR
+                    ? new TimeSeriesPoint(b.toLocalDate(), value, b)
+                    : new TimeSeriesPoint(b.toLocalDate(), value));
+        }
+        return out;
+    }
+
+    private List<Object[]> daily(Scope scope, Long id, LocalDate from, LocalDate to) {
+        return switch (scope) {
+            case CITY -> rollupRepository.dailyByCity(id, from, to);
+            case LOCALITY -> rollupRepository.dailyByLocality(id, from, to);
+            case DEPARTMENT -> rollupRepository.dailyByDepartment(id, from, to);
+        };
+    }
+
+    private long backlogBefore(Scope scope, Long id, LocalDate before) {
+        return switch (scope) {
+            case CITY -> rollupRepository.backlogBeforeByCity(id, before);
+            case LOCALITY -> rollupRepository.backlogBeforeByLocality(id, before);
+            case DEPARTMENT -> rollupRepository.backlogBeforeByDepartment(id, before);
+        };
+    }
+
+    private static void add(TreeMap<LocalDateTime, long[]> deltas, LocalDateTime bucket,
+                            long created, long resolved, long rejected) {
+        long[] d = deltas.computeIfAbsent(bucket, k -> new long[3]);
+        d[0] += created;
+        d[1] += resolved;
+        d[2] += rejected;
+    }
+
+    private static List<LocalDateTime> buckets(LocalDateTime start, LocalDateTime last, Granularity granularity) {
+        long count = switch (granularity) {
+            case HOUR -> ChronoUnit.HOURS.between(start, last) + 24;
+            case DAY -> ChronoUnit.DAYS.between(start, last) + 1;
+            case WEEK -> ChronoUnit.WEEKS.between(start, last) + 1;
+            case MONTH -> ChronoUnit.MONTHS.between(start, last) + 1;
+        };
+        if (count > MAX_BUCKETS)
+            throw new IllegalArgumentException("Range spans " + count + " " + granularity.name().toLowerCase()
+                    + " buckets, max is " + MAX_BUCKETS);
+        List<LocalDateTime> out = new ArrayList<>((int) count);
+        for (LocalDateTime b = start; out.size() < count; b = next(b, granularity)) out.add(b);
+        return out;
+    }
+
+    private static LocalDate bucketStart(LocalDate day, Granularity granularity) {
+        return switch (granularity) {
+            case HOUR, DAY -> day;
+            case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> day.withDayOfMonth(1);
+        };
+    }
+
+    private static LocalDateTime next(LocalDateTime bucket, Granularity granularity) {
+        return switch (granularity) {
+            case HOUR -> bucket.plusHours(1);
+            case DAY -> bucket.plusDays(1);
+            case WEEK -> bucket.plusWeeks(1);
+            case MONTH -> bucket.plusMonths(1);
+        };
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.sih.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rebuilds the counters from issue_report on startup in write-behind mode, which replays anything
+ * that was still buffered when the previous process died. It runs as a lifecycle phase ahead of
+ * the embedded web server and before scheduled tasks are registered, so no request can buffer a
+ * delta for an issue the rebuild also counts and no flush runs in the middle of it.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WriteBehindStartup implements SmartLifecycle {
+    // the embedded web server starts at DEFAULT_PHASE - 2048
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    private final CounterDeltaBuffer deltaBuffer;
+    private final RecalculationService recalculationService;
+
+    private volatile boolean running;
+
+    @Override
+    public void start() {
+        if (deltaBuffer.isEnabled()) {
+            log.info("Write-behind counters enabled, rebuilding counters from issue_report");
+            recalculationService.recalcAll();
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+}
@@ -0,0 +1,5 @@
+package com.example.sih.types;
+
+public enum JobState {
+    RUNNING, SUCCEEDED, FAILED, CANCELLED
+}
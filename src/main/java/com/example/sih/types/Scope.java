@@ -0,0 +1,5 @@
+package com.example.sih.types;
+
+public enum Scope {
+    CITY, LOCALITY, DEPARTMENT
+}
@@ -0,0 +1,49 @@
+package com.example.sih.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Uniform lat/lon grid used to index issue locations. A cell is CELL_DEGREES on each side
+ * (about 550 m north-south) and is keyed as row * COLUMNS + column, which the database can
+ * compute with the same arithmetic (see data.sql and IssueReportJdbcRepository).
+ */
+public class GeoGrid {
+    public static final double CELL_DEGREES = 0.005;
+    public static final long COLUMNS = Math.round(360 / CELL_DEGREES);
+    public static final double EARTH_RADIUS_METERS = 6_371_000.0;
+    private static final double METERS_PER_DEGREE = 111_320.0;
+
+    public static long cellOf(double latitude, double longitude) {
+        long row = (long) Math.floor((latitude + 90) / CELL_DEGREES);
+        long col = (long) Math.floor((longitude + 180) / CELL_DEGREES);
+        return row * COLUMNS + col;
+    }
+
+    // Every cell touched by the bounding box of a circle, i.e. the cell and its neighbours
+    public static List<Long> cellsWithin(double latitude, double longitude, double radiusMeters) {
+        double dLat = radiusMeters / METERS_PER_DEGREE;
+        double cos = Math.max(Math.cos(Math.toRadians(latitude)), 0.01);
+        double dLon = Math.min(radiusMeters / (METERS_PER_DEGREE * cos), 180);
+        long minRow = (long) Math.floor((Math.max(latitude - dLat, -90) + 90) / CELL_DEGREES);
+        long maxRow = (long) Math.floor((Math.min(latitude + dLat, 90) + 90) / CELL_DEGREES);
+        long minCol = (long) Math.floor((longitude - dLon + 180) / CELL_DEGREES);
+        long maxCol = (long) Math.floor((longitude + dLon + 180) / CELL_DEGREES);
+        List<Long> cells = new ArrayList<>();
+        for (long row = minRow; row <= maxRow; row++) {
+            for (long col = minCol; col <= maxCol; col++) {
+                cells.add(row * COLUMNS + Math.floorMod(col, COLUMNS));
+            }
+        }
+        return cells;
+    }
+
+    public static double haversineMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.sqrt(a));
+    }
+}
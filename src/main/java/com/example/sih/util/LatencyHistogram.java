@@ -0,0 +1,54 @@
+package com.example.sih.util;
+
+/**
+ * Bucket layout of the resolution-time histograms. Bucket 0 holds everything under a minute;
+ * bucket i >= 1 covers [60 * GROWTH^(i-1), 60 * GROWTH^i) seconds, and the last bucket also takes
+ * anything longer (about 6.5 years). With GROWTH = 1.1 a percentile read back from a bucket is
+ * within 5% of the true value.
+ * <p>
+ * A histogram is just {@link #BUCKETS} counts, so it is bounded at 160 longs (1.25 KB) per
+ * entity in memory and at most 160 rows per entity in resolution_histogram. Histograms merge by
+ * adding counts and an issue leaving RESOLVED is removed exactly by subtracting it again.
+ * {@link #SQL_BUCKET} must stay in step with {@link #bucketOf(long)}.
+ */
+public final class LatencyHistogram {
+    public static final int BUCKETS = 160;
+    private static final double BASE_SECONDS = 60.0;
+    private static final double GROWTH = 1.1;
+
+    // SQL form of bucketOf over a seconds expression named s
+    public static final String SQL_BUCKET = "CASE WHEN s < 60 THEN 0 " +
+            "ELSE LEAST(" + (BUCKETS - 1) + ", 1 + FLOOR(LN(s / 60.0) / LN(1.1))) END";
+
+    private LatencyHistogram() {
+    }
+
+    public static int bucketOf(long seconds) {
+        if (seconds < BASE_SECONDS) return 0;
+        int bucket = 1 + (int) Math.floor(Math.log(seconds / BASE_SECONDS) / Math.log(GROWTH));
+        return Math.min(BUCKETS - 1, bucket);
+    }
+
+    // Geometric midpoint of the bucket, in seconds
+    public static double representative(int bucket) {
+        if (bucket <= 0) return BASE_SECONDS / 2;
+        return BASE_SECONDS * Math.pow(GROWTH, bucket - 0.5);
+    }
+
+    /**
+     * @param q quantile in (0, 1]
+     * @return the representative value of the bucket holding the q-th observation, or null if empty
+     */
+    public static Double quantileSeconds(long[] counts, double q) {
+        long total = 0;
+        for (long c : counts) total += Math.max(0, c);
+        if (total == 0) return null;
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += Math.max(0, counts[i]);
+            if (seen >= rank) return representative(i);
+        }
+        return representative(counts.length - 1);
+    }
+}
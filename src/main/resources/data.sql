@@ -60,6 +60,7 @@ INSERT INTO department (name, category_handled, active_issue_count, resolved_iss
 -- Issues (sample 2 issues per locality)
 -- -----------------------
 INSERT INTO issue_report (
+    id,
     description,
     latitude,
     longitude,
@@ -72,6 +73,7 @@ INSERT INTO issue_report (
     updated_at
 )
 SELECT
+    nextval('issue_report_seq'),
     'Reported ' || d.category_handled || ' problem in ' || l.name || ', ' || c.name,
     22.0 + random()*3,
     83.0 + random()*5,
@@ -86,6 +88,11 @@ FROM locality l
     JOIN city c ON c.id = l.city_id
     JOIN department d ON d.category_handled IN ('ROADS','SANITATION','LIGHTING','WASTE','WATER')
     CROSS JOIN generate_series(1,2) gs;
+-- Grid cell for the nearby search (same arithmetic as GeoGrid.cellOf)
+UPDATE issue_report
+SET grid_cell = FLOOR((latitude + 90) / 0.005)::bigint * 72000 + FLOOR((longitude + 180) / 0.005)::bigint
+WHERE grid_cell IS NULL;
+
 -- Update active/resolved counts for each city
 UPDATE city c
 SET active_issue_count = (
@@ -123,4 +130,49 @@ SET active_issue_count = (
         SELECT COUNT(*) FROM issue_report ir
         WHERE ir.department_id = d.id
           AND ir.status IN ('RESOLVED','REJECTED')
-    );
\ No newline at end of file
+    );
+-- Running resolution-time totals (seconds from creation to resolution over RESOLVED issues)
+UPDATE city c
+SET resolution_seconds_sum = COALESCE((
+    SELECT SUM(FLOOR(EXTRACT(EPOCH FROM (ir.resolved_at - ir.created_at)))) FROM issue_report ir
+    WHERE ir.city_id = c.id AND ir.status = 'RESOLVED' AND ir.resolved_at IS NOT NULL
+), 0),
+    resolution_count = (
+        SELECT COUNT(*) FROM issue_report ir
+        WHERE ir.city_id = c.id AND ir.status = 'RESOLVED' AND ir.resolved_at IS NOT NULL
+    );
+
+UPDATE locality l
+SET resolution_seconds_sum = COALESCE((
+    SELECT SUM(FLOOR(EXTRACT(EPOCH FROM (ir.resolved_at - ir.created_at)))) FROM issue_report ir
+    WHERE ir.locality_id = l.id AND ir.status = 'RESOLVED' AND ir.resolved_at IS NOT NULL
+), 0),
+    resolution_count = (
+        SELECT COUNT(*) FROM issue_report ir
+        WHERE ir.locality_id = l.id AND ir.status = 'RESOLVED' AND ir.resolved_at IS NOT NULL
+    );
+
+UPDATE department d
+SET resolution_seconds_sum = COALESCE((
+    SELECT SUM(FLOOR(EXTRACT(EPOCH FROM (ir.resolved_at - ir.created_at)))) FROM issue_report ir
+    WHERE ir.department_id = d.id AND ir.status = 'RESOLVED' AND ir.resolved_at IS NOT NULL
+), 0),
+    resolution_count = (
+        SELECT COUNT(*) FROM issue_report ir
+        WHERE ir.department_id = d.id AND ir.status = 'RESOLVED' AND ir.resolved_at IS NOT NULL
+    );
+
+-- Resolution-time histograms (bucket layout in LatencyHistogram)
+INSERT INTO resolution_histogram (scope, entity_id, bucket, count)
+SELECT 'LOCALITY', locality_id,
+       CASE WHEN s < 60 THEN 0 ELSE LEAST(159, 1 + FLOOR(LN(s / 60.0) / LN(1.1))) END, COUNT(*)
+FROM (SELECT locality_id, FLOOR(EXTRACT(EPOCH FROM (resolved_at - created_at))) AS s FROM issue_report
+      WHERE status = 'RESOLVED' AND resolved_at IS NOT NULL) r
+GROUP BY 1, 2, 3;
+
+INSERT INTO resolution_histogram (scope, entity_id, bucket, count)
+SELECT 'DEPARTMENT', department_id,
+       CASE WHEN s < 60 THEN 0 ELSE LEAST(159, 1 + FLOOR(LN(s / 60.0) / LN(1.1))) END, COUNT(*)
+FROM (SELECT department_id, FLOOR(EXTRACT(EPOCH FROM (resolved_at - created_at))) AS s FROM issue_report
+      WHERE status = 'RESOLVED' AND resolved_at IS NOT NULL) r
+GROUP BY 1, 2, 3;
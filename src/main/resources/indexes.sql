@@ -0,0 +1,20 @@
+-- -----------------------
+-- Indexes JPA cannot declare (partial / covering / expression). Runs after Hibernate creates the tables.
+-- -----------------------
+
+-- Resolved issues per city / locality / department: index-only scans for the average resolution
+-- time, and range scans on resolved_at for the hourly time series
+CREATE INDEX IF NOT EXISTS idx_issue_resolved_city
+    ON issue_report (city_id, resolved_at) INCLUDE (created_at) WHERE status = 'RESOLVED';
+CREATE INDEX IF NOT EXISTS idx_issue_resolved_locality
+    ON issue_report (locality_id, resolved_at) INCLUDE (created_at) WHERE status = 'RESOLVED';
+CREATE INDEX IF NOT EXISTS idx_issue_resolved_department
+    ON issue_report (department_id, resolved_at) INCLUDE (created_at) WHERE status = 'RESOLVED';
+
+-- Rejected issues by rejection time, for the rejected branch of the hourly time series
+CREATE INDEX IF NOT EXISTS idx_issue_rejected_city
+    ON issue_report (city_id, (COALESCE(rejected_at, updated_at))) WHERE status = 'REJECTED';
+CREATE INDEX IF NOT EXISTS idx_issue_rejected_locality
+    ON issue_report (locality_id, (COALESCE(rejected_at, updated_at))) WHERE status = 'REJECTED';
+CREATE INDEX IF NOT EXISTS idx_issue_rejected_department
+    ON issue_report (department_id, (COALESCE(rejected_at, updated_at))) WHERE status = 'REJECTED';
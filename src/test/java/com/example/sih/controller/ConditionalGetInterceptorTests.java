@@ -0,0 +1,80 @@
+package com.example.sih.controller;
+
+import com.example.sih.service.DataVersion;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConditionalGetInterceptorTests {
+    private final DataVersion dataVersion = new DataVersion();
+    private final ConditionalGetInterceptor interceptor = new ConditionalGetInterceptor(dataVersion);
+
+    private MockHttpServletResponse get(String method, String... ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/api/cities");
+        for (String value : ifNoneMatch) request.addHeader(HttpHeaders.IF_NONE_MATCH, value);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        boolean proceed = interceptor.preHandle(request, response, new Object());
+        assertThat(proceed).isEqualTo(response.getStatus() != 304);
+        return response;
+    }
+
+    @Test
+    void currentTagIsNotModified() {
+        String etag = dataVersion.etag();
+        assertThat(get("GET", etag).getStatus()).isEqualTo(304);
+        assertThat(get("GET").getHeader(HttpHeaders.ETAG)).isEqualTo(etag);
+    }
+
+    @Test
+    void olderTagIsServed() {
+        String etag = dataVersion.etag();
+        dataVersion.bump();
+        assertThat(get("GET", etag).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void anyMemberOfTheListMatches() {
+        String etag = dataVersion.etag();
+        assertThat(get("GET", "\"a\", " + etag + ",\"b\"").getStatus()).isEqualTo(304);
+        assertThat(get("GET", "\"a\"", etag).getStatus()).isEqualTo(304);
+        assertThat(get("GET", "\"a\",\"b\"").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void commaInsideATagDoesNotSplitIt() {
+        String etag = dataVersion.etag();
+        String inner = etag.substring(1, etag.length() - 1);
+        assertThat(get("GET", "\"x," + inner + "\"").getStatus()).isEqualTo(200);
+        assertThat(get("GET", "\"x,y\", " + etag).getStatus()).isEqualTo(304);
+    }
+
+    @Test
+    void weakTagsCompareWeakly() {
+        assertThat(get("GET", "W/" + dataVersion.etag()).getStatus()).isEqualTo(304);
+        assertThat(get("GET", "\"a\", W/" + dataVersion.etag()).getStatus()).isEqualTo(304);
+    }
+
+    @Test
+    void starMatchesAnyRepresentation() {
+        assertThat(get("GET", "*").getStatus()).isEqualTo(304);
+        assertThat(get("GET", " * ").getStatus()).isEqualTo(304);
+    }
+
+    @Test
+    void malformedOrUnquotedTagsMatchNothing() {
+        String etag = dataVersion.etag();
+        String bare = etag.substring(1, etag.length() - 1);
+        assertThat(get("GET", bare).getStatus()).isEqualTo(200);
+        assertThat(get("GET", "\"unterminated").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void onlyGetIsConditional() {
+        MockHttpServletResponse response = get("POST", dataVersion.etag());
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isNull();
+    }
+}
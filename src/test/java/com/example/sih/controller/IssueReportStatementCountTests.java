@@ -0,0 +1,295 @@
+package com.example.sih.controller;
+
+import com.example.sih.service.AnalyticsCache;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Guards the number of SQL statements the issue write endpoints and the hot read endpoints issue.
+ * Statements are counted as they are prepared on the test thread only, so scheduled background
+ * work does not leak in. Responses must be the compact IssueView, never the nested
+ * City/Locality/Department graph. Requests run and commit as they would in production, so the
+ * issues a test creates are deleted through the API afterwards, which keeps counters, rollup
+ * and in-memory indexes in step.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class IssueReportStatementCountTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private AnalyticsCache analyticsCache;
+
+    private final Set<Long> created = new LinkedHashSet<>();
+    private long cityId;
+    private long localityId;
+    private long otherLocalityId;
+    private String category;
+
+    @BeforeEach
+    void pickReferences() throws Exception {
+        cityId = jdbc.queryForObject("SELECT city_id FROM locality GROUP BY city_id HAVING COUNT(*) > 1 " +
+                "ORDER BY city_id LIMIT 1", Long.class);
+        localityId = jdbc.queryForObject("SELECT MIN(id) FROM locality WHERE city_id = ?", Long.class, cityId);
+        otherLocalityId = jdbc.queryForObject("SELECT MAX(id) FROM locality WHERE city_id = ?", Long.class, cityId);
+        category = jdbc.queryForObject("SELECT MIN(category_handled) FROM department", String.class);
+        // warm the reference data cache so its one-off load is not counted
+        create();
+    }
+
+    @AfterEach
+    void deleteCreated() throws Exception {
+        for (Long id : created) mvc.perform(delete("/api/issues/" + id)).andExpect(status().isOk());
+        created.clear();
+    }
+
+    @Test
+    void createIssuesAFixedNumberOfStatements() throws Exception {
+        StatementCounter.start();
+        JsonNode body = create();
+        int statements = StatementCounter.stop();
+
+        // duplicate check, id sequence, insert, three counters, rollup, view
+        assertThat(statements).isLessThanOrEqualTo(8);
+        assertCompactView(body);
+    }
+
+    @Test
+    void statusTransitionIsReadPlusOneStatement() throws Exception {
+        long id = create().get("id").asLong();
+
+        StatementCounter.start();
+        JsonNode body = json(mvc.perform(patch("/api/issues/" + id + "/status").param("status", "RESOLVED")));
+        int statements = StatementCounter.stop();
+
+        assertThat(statements).isEqualTo(2);
+        assertThat(body.get("status").asText()).isEqualTo("RESOLVED");
+        assertThat(body.get("resolvedAt").isNull()).isFalse();
+        assertCompactView(body);
+    }
+
+    @Test
+    void bulkTransitionWritesEachEntityOnce() throws Exception {
+        long first = create().get("id").asLong();
+        long second = create().get("id").asLong();
+
+        StatementCounter.start();
+        JsonNode body = json(mvc.perform(patch("/api/issues/status").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\":[" + first + "," + second + "],\"status\":\"RESOLVED\"}")));
+        int statements = StatementCounter.stop();
+
+        // conditional UPDATE, one counter-and-resolution UPDATE per city/locality/department, histograms, rollup
+        assertThat(statements).isLessThanOrEqualTo(8);
+        assertThat(body.get("changed")).hasSize(2);
+    }
+
+    @Test
+    void relocationDoesNotLoadTheEntityGraph() throws Exception {
+        long id = create().get("id").asLong();
+
+        StatementCounter.start();
+        JsonNode body = json(mvc.perform(patch("/api/issues/" + id + "/location")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"cityId\":" + cityId + ",\"localityId\":" + otherLocalityId + "}")));
+        int statements = StatementCounter.stop();
+
+        // issue row, four counters, two rollup rows, issue update, view
+        assertThat(statements).isLessThanOrEqualTo(9);
+        assertThat(body.get("localityId").asLong()).isEqualTo(otherLocalityId);
+        assertCompactView(body);
+    }
+
+    @Test
+    void listingIsOneStatementPerPage() throws Exception {
+        create();
+        create();
+
+        StatementCounter.start();
+        JsonNode first = json(mvc.perform(get("/api/issues").param("cityId", String.valueOf(cityId))
+                .param("limit", "2")));
+        int firstStatements = StatementCounter.stop();
+
+        StatementCounter.start();
+        json(mvc.perform(get("/api/issues").param("cityId", String.valueOf(cityId)).param("limit", "2")
+                .param("cursor", first.get("nextCursor").asText())));
+        int nextStatements = StatementCounter.stop();
+
+        assertThat(first.get("items")).hasSize(2);
+        assertThat(firstStatements).isEqualTo(1);
+        assertThat(nextStatements).isEqualTo(1);
+    }
+
+    @Test
+    void nearbyIsOneStatement() throws Exception {
+        JsonNode issue = create();
+
+        StatementCounter.start();
+        JsonNode body = json(mvc.perform(get("/api/issues/nearby")
+                .param("lat", issue.get("latitude").asText()).param("lon", issue.get("longitude").asText())
+                .param("radius", "100")));
+        int statements = StatementCounter.stop();
+
+        assertThat(statements).isEqualTo(1);
+        assertThat(body.findValuesAsText("id")).contains(issue.get("id").asText());
+    }
+
+    @Test
+    void leaderboardsAreServedWithoutStatements() throws Exception {
+        analyticsCache.invalidateAll();
+
+        StatementCounter.start();
+        json(mvc.perform(get("/api/analytics/cities/leaderboard")));
+        json(mvc.perform(get("/api/analytics/cities/leaderboard/per-capita")));
+        json(mvc.perform(get("/api/analytics/cities/" + cityId + "/localities/leaderboard")));
+        json(mvc.perform(get("/api/analytics/localities/leaderboard")));
+        json(mvc.perform(get("/api/analytics/departments/leaderboard")));
+        int statements = StatementCounter.stop();
+
+        assertThat(statements).isZero();
+    }
+
+    @Test
+    void summariesAreAFixedNumberOfStatements() throws Exception {
+        long otherCityId = jdbc.queryForObject("SELECT MAX(id) FROM city", Long.class);
+        analyticsCache.invalidateAll();
+
+        StatementCounter.start();
+        json(mvc.perform(get("/api/analytics/cities/" + cityId + "/summary")));
+        int cold = StatementCounter.stop();
+
+        StatementCounter.start();
+        json(mvc.perform(get("/api/analytics/cities/" + cityId + "/summary")));
+        int cached = StatementCounter.stop();
+
+        StatementCounter.start();
+        JsonNode batch = json(mvc.perform(get("/api/analytics/cities/summary")
+                .param("ids", cityId + "," + otherCityId)));
+        int batchStatements = StatementCounter.stop();
+
+        // city row, histogram buckets
+        assertThat(cold).isLessThanOrEqualTo(2);
+        assertThat(cached).isZero();
+        // the same two statements for any number of ids
+        assertThat(batchStatements).isLessThanOrEqualTo(2);
+        assertThat(batch).hasSize(2);
+    }
+
+    private JsonNode create() throws Exception {
+        // a point far from the seed data so duplicate detection never folds it into another issue
+        double offset = Math.random() / 100;
+        String req = "{\"description\":\"statement count\",\"latitude\":" + (-45 - offset) +
+                ",\"longitude\":" + (-120 - offset) + ",\"category\":\"" + category + "\"," +
+                "\"cityId\":" + cityId + ",\"localityId\":" + localityId + "}";
+        JsonNode body = json(mvc.perform(post("/api/issues").contentType(MediaType.APPLICATION_JSON).content(req)));
+        created.add(body.get("id").asLong());
+        return body;
+    }
+
+    private JsonNode json(ResultActions result) throws Exception {
+        return objectMapper.readTree(result.andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+    }
+
+    private static void assertCompactView(JsonNode body) {
+        assertThat(body.has("cityName")).isTrue();
+        assertThat(body.has("localityName")).isTrue();
+        assertThat(body.has("departmentName")).isTrue();
+        assertThat(body.has("city")).isFalse();
+        assertThat(body.has("locality")).isFalse();
+        assertThat(body.has("department")).isFalse();
+    }
+
+    @TestConfiguration
+    static class CountingDataSourceConfig {
+        @Bean
+        static BeanPostProcessor countingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource ds ? new StatementCounter(ds) : bean;
+                }
+            };
+        }
+    }
+
+    static class StatementCounter extends DelegatingDataSource {
+        private static final AtomicInteger count = new AtomicInteger();
+        private static volatile Thread watched;
+
+        StatementCounter(DataSource target) {
+            super(target);
+        }
+
+        static void start() {
+            count.set(0);
+            watched = Thread.currentThread();
+        }
+
+        static int stop() {
+            watched = null;
+            return count.get();
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return counting(obtainTargetDataSource().getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return counting(obtainTargetDataSource().getConnection(username, password));
+        }
+
+        private static Connection counting(Connection target) {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                        String name = method.getName();
+                        if (watched == Thread.currentThread() && (name.equals("prepareStatement")
+                                || name.equals("prepareCall") || name.equals("createStatement")))
+                            count.incrementAndGet();
+                        try {
+                            return method.invoke(target, args);
+                        } catch (InvocationTargetException ex) {
+                            throw ex.getTargetException();
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.sih.controller;
+
+import com.example.sih.SihApplication;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Cost of the metrics instrumentation on {@code POST /api/issues}. Two contexts run side by side
+ * in one JVM against the same database: one with {@code db.metrics.enabled} and the {@code @Timed}
+ * aspect on, one with both off. Blocks of requests alternate between them so JIT warm-up and
+ * table growth affect both alike. Commits skip the WAL flush so disk latency does not drown out
+ * the difference. Off by default; run with
+ * {@code mvn test -Dtest=MetricsOverheadBenchmarkTests -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class MetricsOverheadBenchmarkTests {
+    private static final int WARMUP = 3_000;
+    private static final int BLOCK = 500;
+    private static final int BLOCKS = 20;
+
+    private final AtomicInteger seq = new AtomicInteger();
+
+    @Test
+    void createPathWithAndWithoutInstrumentation() throws Exception {
+        try (ConfigurableApplicationContext off = start(false, true);
+             ConfigurableApplicationContext on = start(true, false)) {
+            Client plain = new Client(off);
+            Client instrumented = new Client(on);
+            for (int i = 0; i < WARMUP; i++) {
+                plain.create();
+                instrumented.create();
+            }
+            long[] offNanos = new long[BLOCK * BLOCKS];
+            long[] onNanos = new long[BLOCK * BLOCKS];
+            for (int b = 0; b < BLOCKS; b++) {
+                // alternate which side goes first
+                boolean plainFirst = b % 2 == 0;
+                (plainFirst ? plain : instrumented).measure(plainFirst ? offNanos : onNanos, b * BLOCK);
+                (plainFirst ? instrumented : plain).measure(plainFirst ? onNanos : offNanos, b * BLOCK);
+            }
+            System.out.printf("%nPOST /api/issues, %d sequential requests per side after %d warm-up%n",
+                    BLOCK * BLOCKS, WARMUP);
+            System.out.printf("%-12s %10s %10s %10s%n", "", "mean us", "p50 us", "p99 us");
+            print("metrics off", offNanos);
+            print("metrics on", onNanos);
+        }
+    }
+
+    // command-line arguments, since default properties would lose to application.properties
+    private static ConfigurableApplicationContext start(boolean metrics, boolean createSchema) {
+        ConfigurableApplicationContext ctx = new SpringApplicationBuilder(SihApplication.class).run(
+                "--server.port=0", "--spring.jpa.show-sql=false", "--logging.level.org.hibernate.SQL=WARN",
+                "--spring.datasource.hikari.connection-init-sql=SET synchronous_commit TO off",
+                "--spring.jpa.hibernate.ddl-auto=" + (createSchema ? "create" : "none"),
+                "--spring.sql.init.mode=" + (createSchema ? "always" : "never"),
+                "--spring.jmx.enabled=false",
+                "--db.metrics.enabled=" + metrics,
+                "--management.observations.annotations.enabled=" + metrics);
+        assertThat(ctx.containsBean("dbMetricsInterceptor")).isEqualTo(metrics);
+        return ctx;
+    }
+
+    private static void print(String label, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        double mean = Arrays.stream(sorted).average().orElse(0) / 1000;
+        System.out.printf("%-12s %10.0f %10d %10d%n", label, mean,
+                sorted[sorted.length / 2] / 1000, sorted[sorted.length * 99 / 100] / 1000);
+    }
+
+    private final class Client {
+        final MockMvc mvc;
+        final long cityId;
+        final long localityId;
+        final String category;
+
+        Client(ConfigurableApplicationContext ctx) {
+            mvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) ctx).build();
+            JdbcTemplate jdbc = ctx.getBean(JdbcTemplate.class);
+            localityId = jdbc.queryForObject("SELECT MIN(id) FROM locality", Long.class);
+            cityId = jdbc.queryForObject("SELECT city_id FROM locality WHERE id = ?", Long.class, localityId);
+            category = jdbc.queryForObject("SELECT MIN(category_handled) FROM department", String.class);
+        }
+
+        void measure(long[] nanos, int offset) throws Exception {
+            for (int i = 0; i < BLOCK; i++) {
+                long start = System.nanoTime();
+                create();
+                nanos[offset + i] = System.nanoTime() - start;
+            }
+        }
+
+        void create() throws Exception {
+            // points ~1 km apart so duplicate detection never folds one report into another
+            int n = seq.getAndIncrement();
+            String req = "{\"description\":\"benchmark\",\"latitude\":" + (-45 - n / 300 * 0.01) +
+                    ",\"longitude\":" + (-120 - n % 300 * 0.01) + ",\"category\":\"" + category + "\"," +
+                    "\"cityId\":" + cityId + ",\"localityId\":" + localityId + "}";
+            mvc.perform(post("/api/issues").contentType(MediaType.APPLICATION_JSON).content(req))
+                    .andExpect(status().isOk());
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.sih.controller;
+
+import com.example.sih.SihApplication;
+import com.example.sih.service.DbBulkhead;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Throughput of concurrent {@code POST /api/issues} with platform request threads and no
+ * bulkhead, against virtual request threads with the DB bulkhead. Both contexts run side by side
+ * in one JVM against the same database, each behind its own embedded Tomcat, so the request
+ * threads are the ones the server really uses. Many more clients than pooled connections hit
+ * each server at once through a real HTTP client. Rounds alternate which side goes first so JIT
+ * warm-up and table growth affect both alike. Off by default; run with
+ * {@code mvn test -Dtest=VirtualThreadsBenchmarkTests -Dbenchmark=true}, and set the number of
+ * concurrent clients with {@code -Dbenchmark.concurrency}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class VirtualThreadsBenchmarkTests {
+    private static final int CONCURRENCY = Integer.getInteger("benchmark.concurrency", 400);
+    private static final int WARMUP = 4_000;
+    private static final int REQUESTS = 8_000;
+    private static final int ROUNDS = 6;
+
+    private final AtomicInteger seq = new AtomicInteger();
+
+    @Test
+    void concurrentCreatesWithAndWithoutVirtualThreads() throws Exception {
+        try (ConfigurableApplicationContext platform = start(false, true);
+             ConfigurableApplicationContext virtual = start(true, false)) {
+            Client off = new Client(platform);
+            Client on = new Client(virtual);
+            off.run(WARMUP, new long[WARMUP]);
+            on.run(WARMUP, new long[WARMUP]);
+
+            long[] offNanos = new long[REQUESTS * ROUNDS];
+            long[] onNanos = new long[REQUESTS * ROUNDS];
+            long offWall = 0;
+            long onWall = 0;
+            for (int r = 0; r < ROUNDS; r++) {
+                long[] offRound = new long[REQUESTS];
+                long[] onRound = new long[REQUESTS];
+                if (r % 2 == 0) {
+                    offWall += off.run(REQUESTS, offRound);
+                    onWall += on.run(REQUESTS, onRound);
+                } else {
+                    onWall += on.run(REQUESTS, onRound);
+                    offWall += off.run(REQUESTS, offRound);
+                }
+                System.arraycopy(offRound, 0, offNanos, r * REQUESTS, REQUESTS);
+                System.arraycopy(onRound, 0, onNanos, r * REQUESTS, REQUESTS);
+            }
+            System.out.printf("%nPOST /api/issues, %d concurrent clients, %d requests per side after %d warm-up%n",
+                    CONCURRENCY, REQUESTS * ROUNDS, WARMUP);
+            System.out.printf("%-22s %10s %10s %10s %10s %8s%n", "", "req/s", "mean ms", "p50 ms", "p99 ms", "errors");
+            print("platform, no bulkhead", offNanos, offWall, off.errors.get());
+            print("virtual + bulkhead", onNanos, onWall, on.errors.get());
+        }
+    }
+
+    // command-line arguments, since default properties would lose to application.properties
+    private static ConfigurableApplicationContext start(boolean virtual, boolean createSchema) {
+        ConfigurableApplicationContext ctx = new SpringApplicationBuilder(SihApplication.class).run(
+                "--server.port=0", "--spring.jpa.show-sql=false", "--logging.level.org.hibernate.SQL=WARN",
+                "--spring.datasource.hikari.connection-init-sql=SET synchronous_commit TO off",
+                "--spring.jpa.hibernate.ddl-auto=" + (createSchema ? "create" : "none"),
+                "--spring.sql.init.mode=" + (createSchema ? "always" : "never"),
+                "--spring.jmx.enabled=false",
+                "--spring.threads.virtual.enabled=" + virtual);
+        assertThat(ctx.getBean(DbBulkhead.class).isEnabled()).isEqualTo(virtual);
+        return ctx;
+    }
+
+    private static void print(String label, long[] nanos, long wallNanos, int errors) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        double mean = Arrays.stream(sorted).average().orElse(0) / 1_000_000;
+        System.out.printf("%-22s %10.0f %10.1f %10.1f %10.1f %8d%n", label, sorted.length / (wallNanos / 1e9), mean,
+                sorted[sorted.length / 2] / 1e6, sorted[sorted.length * 99 / 100] / 1e6, errors);
+    }
+
+    private final class Client {
+        final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+        final URI uri;
+        final List<long[]> localities;
+        final List<String> categories;
+        final AtomicInteger errors = new AtomicInteger();
+
+        Client(ConfigurableApplicationContext ctx) {
+            uri = URI.create("http://localhost:" + ctx.getEnvironment().getProperty("local.server.port") + "/api/issues");
+            JdbcTemplate jdbc = ctx.getBean(JdbcTemplate.class);
+            localities = jdbc.query("SELECT id, city_id FROM locality ORDER BY id",
+                    (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2)});
+            categories = jdbc.queryForList("SELECT category_handled FROM department ORDER BY id", String.class);
+        }
+
+        // Sends the requests from CONCURRENCY clients at once and returns the wall time taken
+        long run(int requests, long[] nanos) throws Exception {
+            AtomicInteger next = new AtomicInteger();
+            long start = System.nanoTime();
+            try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int c = 0; c < CONCURRENCY; c++) {
+                    clients.submit(() -> {
+                        for (int i; (i = next.getAndIncrement()) < requests; ) {
+                            long sent = System.nanoTime();
+                            try {
+                                if (create().statusCode() != 200) errors.incrementAndGet();
+                            } catch (Exception ex) {
+                                errors.incrementAndGet();
+                            }
+                            nanos[i] = System.nanoTime() - sent;
+                        }
+                    });
+                }
+            }
+            return System.nanoTime() - start;
+        }
+
+        HttpResponse<Void> create() throws Exception {
+            // points ~1 km apart so duplicate detection never folds one report into another, spread
+            // over every locality and department so the counters are not one hot row each
+            int n = seq.getAndIncrement();
+            long[] locality = localities.get(n % localities.size());
+            String category = categories.get(n / localities.size() % categories.size());
+            String req = "{\"description\":\"benchmark\",\"latitude\":" + (-45 - n / 300 * 0.01) +
+                    ",\"longitude\":" + (-120 - n % 300 * 0.01) + ",\"category\":\"" + category + "\"," +
+                    "\"cityId\":" + locality[1] + ",\"localityId\":" + locality[0] + "}";
+            return http.send(HttpRequest.newBuilder(uri).header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(req)).build(), HttpResponse.BodyHandlers.discarding());
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.sih.repository;
+
+import com.example.sih.dto.IssueTransition;
+import com.example.sih.types.Status;
+import com.example.sih.util.LatencyHistogram;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The single-statement status transition: it must move the issue only from the expected status,
+ * and every counter, resolution total and histogram delta must land exactly once.
+ */
+@SpringBootTest
+@Transactional  // rollback after each test
+class IssueReportCompareAndSetTests {
+
+    @Autowired
+    private IssueReportJdbcRepository jdbcRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private long cityId;
+    private long localityId;
+    private long departmentId;
+    private long issueId;
+    private LocalDateTime createdAt;
+
+    @BeforeEach
+    void seed() {
+        localityId = jdbc.queryForObject("SELECT MIN(id) FROM locality", Long.class);
+        cityId = jdbc.queryForObject("SELECT city_id FROM locality WHERE id = ?", Long.class, localityId);
+        departmentId = jdbc.queryForObject("SELECT MIN(id) FROM department", Long.class);
+        createdAt = LocalDateTime.now().minusHours(2).withNano(0);
+        issueId = jdbc.queryForObject("INSERT INTO issue_report (id, description, latitude, longitude, status, " +
+                "category, department_id, city_id, locality_id, created_at, updated_at, grid_cell) " +
+                "VALUES (nextval('issue_report_seq'), 'cas test', 23.0, 85.0, 'SUBMITTED', 'ROADS', ?, ?, ?, ?, ?, 0) " +
+                "RETURNING id", Long.class, departmentId, cityId, localityId, createdAt, createdAt);
+    }
+
+    @Test
+    void transitionAppliesEveryDeltaOnce() {
+        Map<String, Object> city = counters("city", cityId);
+        Map<String, Object> locality = counters("locality", localityId);
+        long bucketBefore = histogram("LOCALITY", localityId, LatencyHistogram.bucketOf(7_200));
+        LocalDateTime at = createdAt.plusHours(2);
+
+        Optional<IssueTransition> moved = jdbcRepository.compareAndSetStatus(issueId, Status.SUBMITTED,
+                Status.RESOLVED, at, true);
+
+        assertThat(moved).hasValueSatisfying(t -> {
+            assertThat(t.getFrom()).isEqualTo(Status.SUBMITTED);
+            assertThat(t.getLocalityId()).isEqualTo(localityId);
+        });
+        assertThat(jdbc.queryForObject("SELECT status FROM issue_report WHERE id = ?", String.class, issueId))
+                .isEqualTo("RESOLVED");
+        assertDelta("city", cityId, city, -1, 1, 7_200, 1);
+        assertDelta("locality", localityId, locality, -1, 1, 7_200, 1);
+        assertThat(histogram("LOCALITY", localityId, LatencyHistogram.bucketOf(7_200))).isEqualTo(bucketBefore + 1);
+    }
+
+    @Test
+    void staleExpectedStatusChangesNothing() {
+        LocalDateTime at = LocalDateTime.now();
+        assertThat(jdbcRepository.compareAndSetStatus(issueId, Status.SUBMITTED, Status.IN_PROGRESS, at, true))
+                .isPresent();
+        Map<String, Object> city = counters("city", cityId);
+
+        // a second writer that still believes the issue is SUBMITTED loses
+        assertThat(jdbcRepository.compareAndSetStatus(issueId, Status.SUBMITTED, Status.RESOLVED, at, true))
+                .isEmpty();
+
+        assertThat(jdbc.queryForObject("SELECT status FROM issue_report WHERE id = ?", String.class, issueId))
+                .isEqualTo("IN_PROGRESS");
+        assertDelta("city", cityId, city, 0, 0, 0, 0);
+    }
+
+    @Test
+    void reopeningSubtractsTheResolution() {
+        LocalDateTime resolvedAt = createdAt.plusHours(2);
+        jdbcRepository.compareAndSetStatus(issueId, Status.SUBMITTED, Status.RESOLVED, resolvedAt, true);
+        Map<String, Object> department = counters("department", departmentId);
+        long bucket = histogram("DEPARTMENT", departmentId, LatencyHistogram.bucketOf(7_200));
+
+        assertThat(jdbcRepository.compareAndSetStatus(issueId, Status.RESOLVED, Status.IN_PROGRESS,
+                LocalDateTime.now(), true)).isPresent();
+
+        assertDelta("department", departmentId, department, 1, -1, -7_200, -1);
+        assertThat(histogram("DEPARTMENT", departmentId, LatencyHistogram.bucketOf(7_200))).isEqualTo(bucket - 1);
+        assertThat(jdbc.queryForObject("SELECT resolved_at FROM issue_report WHERE id = ?", LocalDateTime.class,
+                issueId)).isNull();
+    }
+
+    @Test
+    void writeBehindModeLeavesCountersToTheBuffer() {
+        Map<String, Object> city = counters("city", cityId);
+
+        jdbcRepository.compareAndSetStatus(issueId, Status.SUBMITTED, Status.RESOLVED, createdAt.plusHours(2), false);
+
+        assertDelta("city", cityId, city, 0, 0, 7_200, 1);
+    }
+
+    private Map<String, Object> counters(String table, long id) {
+        return jdbc.queryForMap("SELECT active_issue_count, resolved_issue_count, resolution_seconds_sum, " +
+                "resolution_count FROM " + table + " WHERE id = ?", id);
+    }
+
+    private void assertDelta(String table, long id, Map<String, Object> before,
+                             long active, long resolved, long seconds, long count) {
+        Map<String, Object> after = counters(table, id);
+        assertThat(diff(after, before, "active_issue_count")).as(table + " active").isEqualTo(active);
+        assertThat(diff(after, before, "resolved_issue_count")).as(table + " resolved").isEqualTo(resolved);
+        assertThat(diff(after, before, "resolution_seconds_sum")).as(table + " seconds").isEqualTo(seconds);
+        assertThat(diff(after, before, "resolution_count")).as(table + " count").isEqualTo(count);
+    }
+
+    private static long diff(Map<String, Object> after, Map<String, Object> before, String column) {
+        return ((Number) after.get(column)).longValue() - ((Number) before.get(column)).longValue();
+    }
+
+    private long histogram(String scope, long id, int bucket) {
+        Long n = jdbc.queryForObject("SELECT COALESCE(SUM(count), 0) FROM resolution_histogram " +
+                "WHERE scope = ? AND entity_id = ? AND bucket = ?", Long.class, scope, id, bucket);
+        return n == null ? 0 : n;
+    }
+}
@@ -0,0 +1,299 @@
+package com.example.sih.repository;
+
+import com.example.sih.dto.IssueFilter;
+import com.example.sih.types.IssueCategory;
+import com.example.sih.types.Scope;
+import com.example.sih.types.Status;
+import com.example.sih.util.GeoGrid;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Plan-regression checks for the issue_report queries. Each test calls the real repository
+ * method, captures the statement it sends together with its bound parameters, and EXPLAINs
+ * exactly that statement with the planner on its default settings, over data spread across
+ * every city, locality and department. The assertions name the index the plan must use, so a
+ * dropped index, a renamed one or a query rewritten so it no longer matches shows up here.
+ */
+@SpringBootTest
+@Transactional  // rollback after each test, seeded rows included
+class IssueReportQueryPlanTests {
+    private static final int ISSUES = 120_000;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private IssueReportRepository repo;
+
+    @Autowired
+    private IssueReportJdbcRepository jdbcRepo;
+
+    private long cityId;
+    private long localityId;
+    private long departmentId;
+    private double lat;
+    private double lon;
+
+    @BeforeEach
+    void seed() {
+        // four localities for every city, on top of the seeded ones
+        jdbc.update("INSERT INTO locality (name, city_id, active_issue_count, resolved_issue_count) " +
+                "SELECT 'Plan ' || c.name || ' ' || n, c.id, 0, 0 FROM city c CROSS JOIN generate_series(1, 4) n");
+
+        // issues cluster around their locality, across the last year, in every status and category
+        jdbc.update("INSERT INTO issue_report (id, description, latitude, longitude, status, category, " +
+                "department_id, city_id, locality_id, created_at, updated_at, resolved_at, rejected_at, grid_cell) " +
+                "SELECT nextval('issue_report_seq'), 'plan test', lat, lon, status, category, " +
+                "department_id, city_id, locality_id, created_at, created_at + age, " +
+                "CASE WHEN status = 'RESOLVED' THEN created_at + age END, " +
+                "CASE WHEN status = 'REJECTED' THEN created_at + age END, " +
+                "FLOOR((lat + 90) / 0.005)::bigint * 72000 + FLOOR((lon + 180) / 0.005)::bigint " +
+                "FROM (SELECT lids[li] AS locality_id, cities[li] AS city_id, " +
+                "dids[di] AS department_id, cats[di] AS category, " +
+                "22 + (li * 0.37) % 3 + random() * 0.05 AS lat, 83 + (li * 0.53) % 5 + random() * 0.05 AS lon, " +
+                "(ARRAY['SUBMITTED','SUBMITTED','IN_PROGRESS','IN_PROGRESS','RESOLVED'," +
+                "'RESOLVED','RESOLVED','RESOLVED','REJECTED','REJECTED'])[1 + floor(random() * 10)::int] AS status, " +
+                "now() - random() * interval '365 days' AS created_at, random() * interval '20 days' AS age " +
+                "FROM (SELECT 1 + gs % cardinality(l.ids) AS li, " +
+                "1 + (gs / cardinality(l.ids)) % cardinality(d.ids) AS di, " +
+                "l.ids AS lids, l.cities, d.ids AS dids, d.cats " +
+                "FROM generate_series(1, ?) gs, " +
+                "(SELECT array_agg(id ORDER BY id) AS ids, array_agg(city_id ORDER BY id) AS cities FROM locality) l, " +
+                "(SELECT array_agg(id ORDER BY id) AS ids, array_agg(category_handled ORDER BY id) AS cats " +
+                "FROM department) d) g) s", ISSUES);
+        jdbc.execute("ANALYZE issue_report");
+
+        localityId = jdbc.queryForObject("SELECT MAX(id) FROM locality", Long.class);
+        cityId = jdbc.queryForObject("SELECT city_id FROM locality WHERE id = ?", Long.class, localityId);
+        departmentId = jdbc.queryForObject("SELECT MIN(id) FROM department", Long.class);
+        lat = jdbc.queryForObject("SELECT AVG(latitude) FROM issue_report WHERE locality_id = ?", Double.class, localityId);
+        lon = jdbc.queryForObject("SELECT AVG(longitude) FROM issue_report WHERE locality_id = ?", Double.class, localityId);
+    }
+
+    @Test
+    void nearbySearchUsesGridIndex() {
+        List<Long> cells = GeoGrid.cellsWithin(lat, lon, 1000);
+        assertUses(plan(() -> repo.findNearby(lat, lon, cells, 1000, null, null, 50)), "idx_issue_grid_cell_status");
+        assertUses(plan(() -> repo.findNearby(lat, lon, cells, 1000, "SUBMITTED", "ROADS", 50)),
+                "idx_issue_grid_cell_status");
+        assertUses(plan(() -> repo.findOpenDuplicate(lat, lon, GeoGrid.cellsWithin(lat, lon, 50), 50,
+                "ROADS", LocalDateTime.now().minusDays(30))), "idx_issue_grid_cell_status");
+    }
+
+    @Test
+    void keysetPageUsesFilterCreatedIndexes() {
+        LocalDateTime cursor = LocalDateTime.now().minusDays(100);
+        assertUses(plan(() -> jdbcRepo.findPage(new IssueFilter(), null, null, 51)), "idx_issue_created_id");
+        assertUses(plan(() -> jdbcRepo.findPage(new IssueFilter(), cursor, Long.MAX_VALUE, 51)),
+                "idx_issue_created_id");
+
+        IssueFilter byCity = new IssueFilter();
+        byCity.setCityId(cityId);
+        assertUses(plan(() -> jdbcRepo.findPage(byCity, cursor, Long.MAX_VALUE, 51)), "idx_issue_city_created_id");
+
+        IssueFilter byLocality = new IssueFilter();
+        byLocality.setLocalityId(localityId);
+        assertUses(plan(() -> jdbcRepo.findPage(byLocality, null, null, 51)), "idx_issue_locality_created_id");
+
+        IssueFilter byDepartment = new IssueFilter();
+        byDepartment.setDepartmentId(departmentId);
+        assertUses(plan(() -> jdbcRepo.findPage(byDepartment, cursor, Long.MAX_VALUE, 51)),
+                "idx_issue_department_created_id");
+
+        IssueFilter byStatus = new IssueFilter();
+        byStatus.setStatus(Status.SUBMITTED);
+        assertUses(plan(() -> jdbcRepo.findPage(byStatus, null, null, 51)), "idx_issue_status_created_id");
+
+        IssueFilter byCategory = new IssueFilter();
+        byCategory.setCategory(IssueCategory.ROADS);
+        assertUses(plan(() -> jdbcRepo.findPage(byCategory, cursor, Long.MAX_VALUE, 51)),
+                "idx_issue_category_created_id");
+    }
+
+    @Test
+    void hourlyDeltasUseScopeIndexes() {
+        LocalDateTime to = LocalDateTime.now();
+        LocalDateTime from = to.minusDays(7);
+        String city = plan(() -> jdbcRepo.hourlyDeltas(Scope.CITY, cityId, from, to));
+        assertUses(city, "idx_issue_city_created_id");
+        assertUses(city, "idx_issue_resolved_city");
+        assertUses(city, "idx_issue_rejected_city");
+
+        String locality = plan(() -> jdbcRepo.hourlyDeltas(Scope.LOCALITY, localityId, from, to));
+        assertUses(locality, "idx_issue_locality_created_id");
+        assertUses(locality, "idx_issue_resolved_locality");
+        assertUses(locality, "idx_issue_rejected_locality");
+
+        String department = plan(() -> jdbcRepo.hourlyDeltas(Scope.DEPARTMENT, departmentId, from, to));
+        assertUses(department, "idx_issue_department_created_id");
+        assertUses(department, "idx_issue_resolved_department");
+        assertUses(department, "idx_issue_rejected_department");
+    }
+
+    @Test
+    void scopedAggregationsUseTheirIndexes() {
+        // A covering index only wins once vacuum has marked its pages all-visible, which rows
+        // written in this rolled-back transaction never are; until then the scope's smaller
+        // status index is as cheap, so either is a correct plan here.
+        assertUses(plan(() -> repo.avgResolutionSecondsByCity(cityId)),
+                "idx_issue_resolved_city", "idx_issue_city_status");
+        assertUses(plan(() -> repo.avgResolutionSecondsByLocality(localityId)),
+                "idx_issue_resolved_locality", "idx_issue_locality_status");
+        assertUses(plan(() -> repo.avgResolutionSecondsByDepartment(departmentId)),
+                "idx_issue_resolved_department", "idx_issue_department_status");
+        assertUses(plan(() -> repo.getDailyNewIssuesByCity(cityId)),
+                "idx_issue_city_created_id", "idx_issue_city_status");
+        assertUses(plan(() -> repo.countByCityIdAndStatus(cityId, Status.SUBMITTED)), "idx_issue_city_status");
+        assertUses(plan(() -> repo.countByLocalityIdAndStatus(localityId, Status.SUBMITTED)),
+                "idx_issue_locality_status");
+    }
+
+    @Test
+    void wholeTableAggregationsReadTheTableOnce() {
+        // these group every row, so one pass over the table is the best plan there is
+        for (Runnable call : List.<Runnable>of(repo::aggregateCountsByCity, repo::aggregateCountsByLocality,
+                repo::aggregateCountsByDepartment, repo::countByGridCell)) {
+            String plan = plan(call);
+            assertThat(plan.split("on issue_report", -1)).as(plan).hasSize(2);
+        }
+    }
+
+    // The plan must reach issue_report through one of the named indexes
+    private static void assertUses(String plan, String... indexes) {
+        String names = "(" + String.join("|", indexes) + ")";
+        assertThat(plan).containsPattern("(Index Scan|Index Scan Backward|Index Only Scan|Index Only Scan Backward) " +
+                "using " + names + " |Bitmap Index Scan on " + names + "\\b");
+    }
+
+    // Runs the call, then EXPLAINs the single statement it sent, with the same parameters bound
+    private String plan(Runnable call) {
+        StatementCapture.start();
+        call.run();
+        List<StatementCapture.Captured> sent = StatementCapture.stop();
+        assertThat(sent).hasSize(1);
+        StatementCapture.Captured statement = sent.get(0);
+        return jdbc.execute((ConnectionCallback<String>) con -> {
+            try (PreparedStatement ps = con.prepareStatement("EXPLAIN " + statement.sql())) {
+                for (StatementCapture.Bind bind : statement.binds()) {
+                    try {
+                        bind.method().invoke(ps, bind.args());
+                    } catch (ReflectiveOperationException ex) {
+                        throw new IllegalStateException(ex);
+                    }
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) plan.append(rs.getString(1)).append('\n');
+                }
+                return plan.toString();
+            }
+        });
+    }
+
+    @TestConfiguration
+    static class CapturingDataSourceConfig {
+        @Bean
+        static BeanPostProcessor capturingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource ds ? new StatementCapture(ds) : bean;
+                }
+            };
+        }
+    }
+
+    /**
+     * Records the SQL and parameter bindings of every statement executed on the watched thread.
+     */
+    static class StatementCapture extends DelegatingDataSource {
+        record Bind(Method method, Object[] args) {}
+
+        record Captured(String sql, List<Bind> binds) {}
+
+        private static final List<Captured> captured = new ArrayList<>();
+        private static volatile Thread watched;
+
+        StatementCapture(DataSource target) {
+            super(target);
+        }
+
+        static void start() {
+            captured.clear();
+            watched = Thread.currentThread();
+        }
+
+        static List<Captured> stop() {
+            watched = null;
+            return List.copyOf(captured);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return capturing(obtainTargetDataSource().getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return capturing(obtainTargetDataSource().getConnection(username, password));
+        }
+
+        private static Connection capturing(Connection target) {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                        Object result = invoke(target, method, args);
+                        if (watched == Thread.currentThread() && method.getName().equals("prepareStatement"))
+                            return recording((PreparedStatement) result, (String) args[0]);
+                        return result;
+                    });
+        }
+
+        private static PreparedStatement recording(PreparedStatement target, String sql) {
+            List<Bind> binds = new ArrayList<>();
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                        String name = method.getName();
+                        if (name.startsWith("set") && args != null && args.length >= 2
+                                && method.getParameterTypes()[0] == int.class)
+                            binds.add(new Bind(method, args.clone()));
+                        else if (name.equals("clearParameters"))
+                            binds.clear();
+                        else if (name.startsWith("execute") && watched == Thread.currentThread())
+                            captured.add(new Captured(sql, List.copyOf(binds)));
+                        return invoke(target, method, args);
+                    });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getTargetException();
+            }
+        }
+    }
+}
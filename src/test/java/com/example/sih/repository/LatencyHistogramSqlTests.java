@@ -0,0 +1,45 @@
+package com.example.sih.repository;
+
+import com.example.sih.util.LatencyHistogram;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link LatencyHistogram#SQL_BUCKET} is evaluated by PostgreSQL in the transition statement and
+ * the histogram rebuilds, {@link LatencyHistogram#bucketOf} in Java everywhere else; both must put
+ * every duration in the same bucket, in particular right at each bucket boundary.
+ */
+@SpringBootTest
+class LatencyHistogramSqlTests {
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void sqlBucketMatchesBucketOf() {
+        List<Long> seconds = new ArrayList<>();
+        for (long s = 0; s < 600; s++) seconds.add(s);
+        for (int b = 1; b < LatencyHistogram.BUCKETS; b++) {
+            long edge = (long) Math.ceil(60 * Math.pow(1.1, b - 1));
+            for (long s = edge - 2; s <= edge + 2; s++) seconds.add(s);
+        }
+        seconds.add(Long.MAX_VALUE / 2);
+
+        List<long[]> rows = jdbc.query("SELECT s, CAST(" + LatencyHistogram.SQL_BUCKET + " AS int) " +
+                "FROM unnest(CAST(? AS bigint[])) AS u(s)", ps -> ps.setArray(1,
+                ps.getConnection().createArrayOf("bigint", seconds.toArray())),
+                (rs, rowNum) -> new long[]{rs.getLong(1), rs.getInt(2)});
+
+        assertThat(rows).hasSize(seconds.size());
+        for (long[] row : rows) {
+            assertThat(row[1]).as("bucket of %d s", row[0]).isEqualTo(LatencyHistogram.bucketOf(row[0]));
+        }
+    }
+}
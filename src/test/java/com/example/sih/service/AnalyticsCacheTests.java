@@ -0,0 +1,146 @@
+package com.example.sih.service;
+
+import com.example.sih.types.Scope;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// a computation left in flight would block the next get forever
+@Timeout(10)
+class AnalyticsCacheTests {
+    private static final List<AnalyticsCache.Tag> CITY_1 = List.of(AnalyticsCache.entity(Scope.CITY, 1L));
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private AnalyticsCache cache(int maxEntries, long ttlMs) {
+        return new AnalyticsCache(true, maxEntries, ttlMs, registry);
+    }
+
+    @Test
+    void concurrentMissesShareOneComputation() throws Exception {
+        AnalyticsCache cache = cache(100, 60_000);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            Future<String> first = pool.submit(() -> cache.get("summary", List.of(1L), CITY_1, () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return "value";
+            }));
+            loading.await(5, TimeUnit.SECONDS);
+            List<Future<String>> waiters = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                waiters.add(pool.submit(() -> cache.get("summary", List.of(1L), CITY_1, () -> {
+                    loads.incrementAndGet();
+                    return "other";
+                })));
+            }
+            // let the waiters reach the shared future before the computation finishes
+            Thread.sleep(100);
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+            for (Future<String> w : waiters) assertThat(w.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(loads).hasValue(1);
+        assertThat(cache.stats().getMisses()).isEqualTo(1);
+        assertThat(cache.stats().getHits() + cache.stats().getCoalesced()).isEqualTo(7);
+    }
+
+    @Test
+    void failedComputationIsNotCachedEvenForErrors() {
+        AnalyticsCache cache = cache(100, 60_000);
+        assertThatThrownBy(() -> cache.get("summary", List.of(1L), CITY_1, () -> {
+            throw new StackOverflowError();
+        })).isInstanceOf(StackOverflowError.class);
+        assertThatThrownBy(() -> cache.get("summary", List.of(1L), CITY_1, () -> {
+            throw new IllegalStateException("db down");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(cache.get("summary", List.of(1L), CITY_1, () -> "value")).isEqualTo("value");
+        assertThat(cache.stats().getSize()).isEqualTo(1);
+    }
+
+    @Test
+    void waitersRetryWhenTheSharedComputationFails() throws Exception {
+        AnalyticsCache cache = cache(100, 60_000);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> failing = pool.submit(() -> cache.get("summary", List.of(1L), CITY_1, () -> {
+                loading.countDown();
+                await(release);
+                throw new OutOfMemoryError("simulated");
+            }));
+            loading.await(5, TimeUnit.SECONDS);
+            Future<String> waiter = pool.submit(() -> cache.get("summary", List.of(1L), CITY_1, () -> "retried"));
+            Thread.sleep(100);
+            release.countDown();
+
+            assertThatThrownBy(() -> failing.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(OutOfMemoryError.class);
+            assertThat(waiter.get(5, TimeUnit.SECONDS)).isEqualTo("retried");
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void invalidatingAnEntityDropsOnlyItsEntries() {
+        AnalyticsCache cache = cache(100, 60_000);
+        List<AnalyticsCache.Tag> city2 = List.of(AnalyticsCache.entity(Scope.CITY, 2L));
+        List<AnalyticsCache.Tag> localities = List.of(AnalyticsCache.anyOf(Scope.LOCALITY));
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("summary", List.of(1L), CITY_1, loads::incrementAndGet);
+        cache.get("summary", List.of(2L), city2, loads::incrementAndGet);
+        cache.get("top", List.of(), localities, loads::incrementAndGet);
+
+        cache.invalidate(Scope.CITY, 1L);
+        cache.get("summary", List.of(1L), CITY_1, loads::incrementAndGet);
+        cache.get("summary", List.of(2L), city2, loads::incrementAndGet);
+        cache.get("top", List.of(), localities, loads::incrementAndGet);
+
+        assertThat(loads).hasValue(4);
+        assertThat(registry.get("analytics.cache.invalidations").functionCounter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void evictionsAndExpirationsAreCounted() throws Exception {
+        AnalyticsCache lru = cache(2, 60_000);
+        for (long id = 1; id <= 3; id++) lru.get("summary", List.of(id), List.of(), () -> "v");
+        assertThat(lru.stats().getSize()).isEqualTo(2);
+        assertThat(registry.get("analytics.cache.evictions").functionCounter().count()).isEqualTo(1);
+
+        SimpleMeterRegistry other = new SimpleMeterRegistry();
+        AnalyticsCache ttl = new AnalyticsCache(true, 100, 1, other);
+        ttl.get("summary", List.of(1L), CITY_1, () -> "v");
+        Thread.sleep(5);
+        ttl.get("summary", List.of(1L), CITY_1, () -> "v");
+        assertThat(other.get("analytics.cache.expirations").functionCounter().count()).isEqualTo(1);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.sih.service;
+
+import com.example.sih.repository.CityRepository;
+import com.example.sih.repository.DepartmentRepository;
+import com.example.sih.repository.LocalityRepository;
+import com.example.sih.types.Scope;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class CounterDeltaBufferTests {
+
+    private CityRepository cities;
+    private LocalityRepository localities;
+    private DepartmentRepository departments;
+    private DataVersion dataVersion;
+    private CounterDeltaBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        cities = mock(CityRepository.class);
+        localities = mock(LocalityRepository.class);
+        departments = mock(DepartmentRepository.class);
+        dataVersion = mock(DataVersion.class);
+        buffer = new CounterDeltaBuffer(cities, localities, departments,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), dataVersion,
+                mock(AnalyticsCache.class), new CommitGate(mock(JdbcTemplate.class)));
+        ReflectionTestUtils.setField(buffer, "enabled", true);
+    }
+
+    @Test
+    void deltasAreSummedAndFlushedAsOneUpdatePerEntity() {
+        buffer.add(Scope.CITY, 1L, 1, 0);
+        buffer.add(Scope.CITY, 1L, 1, 0);
+        buffer.add(Scope.CITY, 1L, -1, 1);
+        buffer.add(Scope.LOCALITY, 10L, 2, 0);
+        buffer.add(Scope.DEPARTMENT, 100L, 0, 3);
+        assertThat(buffer.status().getPendingEntities()).isEqualTo(3);
+
+        buffer.flush();
+
+        verify(cities, times(1)).applyCounterDelta(1L, 1, 1);
+        verify(localities, times(1)).applyCounterDelta(10L, 2, 0);
+        verify(departments, times(1)).applyCounterDelta(100L, 0, 3);
+        verify(dataVersion).bump();
+        assertThat(buffer.status().getPendingEntities()).isZero();
+    }
+
+    @Test
+    void deltasThatCancelOutAreNotWritten() {
+        buffer.add(Scope.CITY, 1L, 1, 0);
+        buffer.add(Scope.CITY, 1L, -1, 0);
+        buffer.add(Scope.LOCALITY, 10L, 0, 0);
+
+        buffer.flush();
+
+        verify(cities, never()).applyCounterDelta(1L, 0, 0);
+        verifyNoInteractions(localities);
+        verify(dataVersion, never()).bump();
+    }
+
+    @Test
+    void failedFlushIsRequeuedAndRetried() {
+        when(cities.applyCounterDelta(1L, 2, 0)).thenThrow(new QueryTimeoutException("timeout"));
+        buffer.add(Scope.CITY, 1L, 2, 0);
+
+        buffer.flush();
+        assertThat(buffer.status().getPendingEntities()).isEqualTo(1);
+
+        buffer.add(Scope.CITY, 1L, 1, 0);
+        buffer.flush();
+        verify(cities).applyCounterDelta(1L, 3, 0);
+        assertThat(buffer.status().getPendingEntities()).isZero();
+    }
+
+    @Test
+    void committedRebuildDropsOnlyTheDeltasItsSnapshotCounted() {
+        buffer.add(Scope.CITY, 1L, 2, 0);
+        buffer.add(Scope.CITY, 5L, 1, 0);
+        buffer.add(Scope.LOCALITY, 1L, 1, 0);
+
+        inTransaction(TransactionSynchronization.STATUS_COMMITTED, () -> {
+            buffer.beforeRebuild(Scope.CITY, 1, 3);
+            // an issue write committing after the rebuild's snapshot
+            buffer.add(Scope.CITY, 1L, 1, 0);
+        });
+        buffer.flush();
+
+        verify(cities).applyCounterDelta(1L, 1, 0);
+        verify(cities).applyCounterDelta(5L, 1, 0);
+        verify(localities).applyCounterDelta(1L, 1, 0);
+    }
+
+    @Test
+    void rolledBackRebuildKeepsEverythingBuffered() {
+        buffer.add(Scope.CITY, 1L, 2, 0);
+
+        inTransaction(TransactionSynchronization.STATUS_ROLLED_BACK, () -> buffer.beforeRebuild(Scope.CITY, 1, 3));
+        buffer.flush();
+
+        verify(cities).applyCounterDelta(1L, 2, 0);
+    }
+
+    // drives the synchronizations registered by the work the way a transaction manager would
+    private static void inTransaction(int outcome, Runnable work) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            work.run();
+            List<TransactionSynchronization> syncs = TransactionSynchronizationManager.getSynchronizations();
+            if (outcome == TransactionSynchronization.STATUS_COMMITTED) {
+                TransactionSynchronizationUtils.triggerBeforeCommit(false);
+                TransactionSynchronizationUtils.invokeAfterCommit(syncs);
+            }
+            TransactionSynchronizationUtils.invokeAfterCompletion(syncs, outcome);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
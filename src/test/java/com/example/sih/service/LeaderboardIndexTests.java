@@ -0,0 +1,125 @@
+package com.example.sih.service;
+
+import com.example.sih.dto.LeaderboardRow;
+import com.example.sih.dto.Metric;
+import com.example.sih.entity.City;
+import com.example.sih.entity.Department;
+import com.example.sih.entity.Locality;
+import com.example.sih.repository.CityRepository;
+import com.example.sih.repository.DepartmentRepository;
+import com.example.sih.repository.LocalityRepository;
+import com.example.sih.types.Scope;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LeaderboardIndexTests {
+
+    private LeaderboardIndex index;
+    private CityRepository cities;
+    private CounterDeltaBuffer deltaBuffer;
+
+    @BeforeEach
+    void load() {
+        City city = City.builder().id(1L).name("Ranchi").population(1_000_000L)
+                .activeIssueCount(3L).resolvedIssueCount(2L).build();
+        City other = City.builder().id(2L).name("Dhanbad").population(500_000L)
+                .activeIssueCount(1L).resolvedIssueCount(1L).build();
+        Locality locality = Locality.builder().id(10L).name("Lalpur").city(city)
+                .activeIssueCount(3L).resolvedIssueCount(2L).build();
+        Department department = Department.builder().id(100L).name("Roads")
+                .activeIssueCount(3L).resolvedIssueCount(2L).build();
+
+        cities = mock(CityRepository.class);
+        LocalityRepository localities = mock(LocalityRepository.class);
+        DepartmentRepository departments = mock(DepartmentRepository.class);
+        when(cities.findAll()).thenReturn(List.of(city, other));
+        when(localities.findAll()).thenReturn(List.of(locality));
+        when(departments.findAll()).thenReturn(List.of(department));
+
+        deltaBuffer = mock(CounterDeltaBuffer.class);
+        index = new LeaderboardIndex(cities, localities, departments, deltaBuffer,
+                new CommitGate(mock(JdbcTemplate.class)), mock(PlatformTransactionManager.class));
+        index.reload();
+    }
+
+    @Test
+    void createThenResolveKeepsEntitiesOnEveryBoard() {
+        // new issue: active +1, resolved unchanged
+        index.applyDelta(Scope.CITY, 1L, 1, 0);
+        index.applyDelta(Scope.LOCALITY, 10L, 1, 0);
+        index.applyDelta(Scope.DEPARTMENT, 100L, 1, 0);
+        assertOnEveryBoard(4, 2);
+
+        // resolve it: active -1, resolved +1, total unchanged
+        index.applyDelta(Scope.CITY, 1L, -1, 1);
+        index.applyDelta(Scope.LOCALITY, 10L, -1, 1);
+        index.applyDelta(Scope.DEPARTMENT, 100L, -1, 1);
+        assertOnEveryBoard(3, 3);
+    }
+
+    @Test
+    void deltasReorderTheBoard() {
+        index.applyDelta(Scope.CITY, 2L, 10, 0);
+
+        List<LeaderboardRow> top = index.top(Scope.CITY, Metric.ACTIVE, 2);
+        assertThat(top).extracting(LeaderboardRow::getId).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void reloadReplaysDeltasAppliedAfterItsSnapshot() {
+        City city = City.builder().id(1L).name("Ranchi").population(1_000_000L)
+                .activeIssueCount(3L).resolvedIssueCount(2L).build();
+        // a create commits after the snapshot was taken but before the boards are rebuilt
+        when(cities.findAll()).thenAnswer(inv -> {
+            index.applyDelta(Scope.CITY, 1L, 1, 0);
+            return List.of(city);
+        });
+
+        index.reload();
+
+        assertRow(index.top(Scope.CITY, Metric.ACTIVE, 10), 1L, 4, 2);
+        assertRow(index.topPerCapita(Metric.ACTIVE, 10), 1L, 4, 2);
+
+        // the log is closed once the rebuild is done
+        when(cities.findAll()).thenReturn(List.of(city));
+        index.reload();
+        assertRow(index.top(Scope.CITY, Metric.ACTIVE, 10), 1L, 3, 2);
+    }
+
+    @Test
+    void reloadAddsDeltasStillBufferedForWriteBehind() {
+        when(deltaBuffer.pendingDeltas()).thenReturn(Map.of(Scope.CITY, Map.of(2L, new long[]{5, 0})));
+
+        index.reload();
+
+        List<LeaderboardRow> top = index.top(Scope.CITY, Metric.ACTIVE, 2);
+        assertThat(top).extracting(LeaderboardRow::getId).containsExactly(2L, 1L);
+        assertRow(top, 2L, 6, 1);
+    }
+
+    private void assertOnEveryBoard(long active, long resolved) {
+        for (Metric metric : Metric.values()) {
+            assertRow(index.top(Scope.CITY, metric, 10), 1L, active, resolved);
+            assertRow(index.top(Scope.LOCALITY, metric, 10), 10L, active, resolved);
+            assertRow(index.top(Scope.DEPARTMENT, metric, 10), 100L, active, resolved);
+            assertRow(index.topPerCapita(metric, 10), 1L, active, resolved);
+            assertRow(index.topLocalitiesInCity(1L, metric, 10), 10L, active, resolved);
+        }
+    }
+
+    private static void assertRow(List<LeaderboardRow> board, long id, long active, long resolved) {
+        assertThat(board).filteredOn(r -> r.getId() == id).singleElement().satisfies(r -> {
+            assertThat(r.getActive()).isEqualTo(active);
+            assertThat(r.getResolved()).isEqualTo(resolved);
+        });
+    }
+}
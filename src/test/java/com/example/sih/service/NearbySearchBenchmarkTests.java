@@ -0,0 +1,100 @@
+package com.example.sih.service;
+
+import com.example.sih.dto.NearbyIssue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Grid-cell nearby search against a full scan that computes the distance to every issue, on
+ * 1M issues spread over the seeded region. Both return the same issues for the same random
+ * centres. Off by default; run with
+ * {@code mvn test -Dtest=NearbySearchBenchmarkTests -Dbenchmark=true}. Everything is rolled back.
+ */
+@SpringBootTest(properties = {"spring.jpa.show-sql=false", "logging.level.org.hibernate.SQL=WARN",
+        "counters.reconcile.enabled=false"})
+@Transactional
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class NearbySearchBenchmarkTests {
+    private static final int ISSUES = 1_000_000;
+    private static final int QUERIES = 50;
+    private static final int LIMIT = 50;
+
+    // the nearby query without the grid_cell predicate, i.e. what the search costs without the grid
+    private static final String FULL_SCAN = "SELECT id FROM (" +
+            "SELECT id, description, latitude, longitude, status, category, " +
+            "2 * 6371000 * ASIN(SQRT(POWER(SIN(RADIANS(latitude - ?) / 2), 2) + " +
+            "COS(RADIANS(?)) * COS(RADIANS(latitude)) * POWER(SIN(RADIANS(longitude - ?) / 2), 2))) AS dist " +
+            "FROM issue_report) t WHERE dist <= ? ORDER BY dist LIMIT ?";
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private IssueReportService issueService;
+
+    @Test
+    void fullScanVersusGridCells() {
+        seed();
+
+        System.out.printf("%nNearby search, %d issues, %d random centres per radius, limit %d%n",
+                ISSUES, QUERIES, LIMIT);
+        System.out.printf("%-8s %-10s %10s %10s %10s%n", "radius", "", "mean ms", "p50 ms", "p99 ms");
+        for (double radius : new double[]{500, 2_000, 5_000}) {
+            Random random = new Random(42);
+            long[] scanNanos = new long[QUERIES];
+            long[] gridNanos = new long[QUERIES];
+            for (int q = 0; q < QUERIES; q++) {
+                double lat = 22 + random.nextDouble() * 3;
+                double lon = 83 + random.nextDouble() * 5;
+                List<Long> scanned = time(scanNanos, q, () -> jdbc.queryForList(FULL_SCAN, Long.class,
+                        lat, lat, lon, radius, LIMIT));
+                List<Long> gridded = time(gridNanos, q, () -> issueService.findNearby(lat, lon, radius,
+                        null, null, LIMIT).stream().map(NearbyIssue::getId).toList());
+                assertThat(gridded).isEqualTo(scanned);
+            }
+            print(radius, "full scan", scanNanos);
+            print(radius, "grid cells", gridNanos);
+        }
+    }
+
+    private void seed() {
+        // spread over the same region as the seed data, about 3 issues per square km
+        jdbc.update("INSERT INTO issue_report (id, description, latitude, longitude, status, category, " +
+                "department_id, city_id, locality_id, created_at, updated_at, grid_cell) " +
+                "SELECT nextval('issue_report_seq'), 'bench', lat, lon, " +
+                "(ARRAY['SUBMITTED','IN_PROGRESS','RESOLVED','REJECTED'])[g % 4 + 1], d.category_handled, d.id, " +
+                "l.city_id, l.id, now() - (g % 365) * interval '1 day', now(), " +
+                "FLOOR((lat + 90) / 0.005)::bigint * 72000 + FLOOR((lon + 180) / 0.005)::bigint " +
+                "FROM (SELECT g, 22 + random() * 3 AS lat, 83 + random() * 5 AS lon " +
+                "FROM generate_series(1, ?) g) p, " +
+                "(SELECT id, city_id FROM locality ORDER BY id LIMIT 1) l, " +
+                "(SELECT id, category_handled FROM department ORDER BY id LIMIT 1) d", ISSUES);
+        jdbc.execute("ANALYZE issue_report");
+    }
+
+    private static <T> T time(long[] nanos, int i, Supplier<T> query) {
+        long start = System.nanoTime();
+        T result = query.get();
+        nanos[i] = System.nanoTime() - start;
+        return result;
+    }
+
+    private static void print(double radius, String label, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-8s %-10s %10.2f %10.2f %10.2f%n", (int) radius + " m", label,
+                Arrays.stream(sorted).average().orElse(0) / 1e6, sorted[sorted.length / 2] / 1e6,
+                sorted[sorted.length * 99 / 100] / 1e6);
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.sih.service;
+
+import com.example.sih.repository.IssueReportRepository;
+import com.example.sih.repository.LocalityRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Old per-row locality recalculation against the set-based statement on 100k localities and
+ * 500k issues, a tenth of the localities having no issues. Off by default; run with
+ * {@code mvn test -Dtest=RecalculationBenchmarkTests -Dbenchmark=true}. Everything is rolled back.
+ */
+@SpringBootTest(properties = {"spring.jpa.show-sql=false", "logging.level.org.hibernate.SQL=WARN",
+        "counters.reconcile.enabled=false"})
+@Transactional
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class RecalculationBenchmarkTests {
+    private static final int LOCALITIES = 100_000;
+    private static final int ISSUES = 500_000;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private IssueReportRepository issueRepo;
+
+    @Autowired
+    private LocalityRepository locRepo;
+
+    @Test
+    void perRowLoopVersusSetBasedUpdate() {
+        seed();
+
+        resetCounters();
+        long oldDrifted = time(this::oldRecalcLocalities);
+        long oldClean = time(this::oldRecalcLocalities);
+        long oldWrong = wrongRows();
+
+        resetCounters();
+        long newDrifted = time(locRepo::recalcCounters);
+        long newClean = time(locRepo::recalcCounters);
+        long newWrong = wrongRows();
+
+        System.out.printf("%nLocality recalculation, %d localities, %d issues%n", LOCALITIES, ISSUES);
+        System.out.printf("%-34s %10s %10s %12s%n", "", "all drift", "no drift", "still wrong");
+        System.out.printf("%-34s %7d ms %7d ms %12d%n", "old: per-row SELECT x2 + UPDATE", oldDrifted, oldClean, oldWrong);
+        System.out.printf("%-34s %7d ms %7d ms %12d%n", "new: one UPDATE ... FROM", newDrifted, newClean, newWrong);
+
+        assertThat(newWrong).isZero();
+    }
+
+    private long wrongRows() {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM locality l WHERE active_issue_count + resolved_issue_count " +
+                "<> (SELECT COUNT(*) FROM issue_report i WHERE i.locality_id = l.id)", Long.class);
+    }
+
+    private void seed() {
+        Long cityId = jdbc.queryForObject("SELECT MIN(id) FROM city", Long.class);
+        Long depId = jdbc.queryForObject("SELECT MIN(id) FROM department", Long.class);
+        String category = jdbc.queryForObject("SELECT category_handled FROM department WHERE id = ?", String.class, depId);
+        Long firstId = jdbc.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM locality", Long.class);
+        jdbc.update("INSERT INTO locality (name, city_id, active_issue_count, resolved_issue_count, " +
+                "resolution_seconds_sum, resolution_count) " +
+                "SELECT 'bench ' || g, ?, 0, 0, 0, 0 FROM generate_series(1, ?) g", cityId, LOCALITIES);
+        // the last tenth of the new localities get no issues
+        jdbc.update("INSERT INTO issue_report (id, description, latitude, longitude, status, category, " +
+                "department_id, city_id, locality_id, created_at, updated_at, resolved_at) " +
+                "SELECT nextval('issue_report_seq'), 'bench', 23.0, 85.0, s.status, ?, ?, ?, " +
+                "? + (g % ?), now() - interval '10 days', now(), " +
+                "CASE WHEN s.status = 'RESOLVED' THEN now() - (g % 200) * interval '1 hour' END " +
+                "FROM generate_series(1, ?) g CROSS JOIN LATERAL (SELECT (ARRAY['SUBMITTED', 'IN_PROGRESS', " +
+                "'RESOLVED', 'REJECTED'])[g % 4 + 1] AS status) s",
+                category, depId, cityId, firstId, LOCALITIES * 9 / 10, ISSUES);
+        jdbc.execute("ANALYZE issue_report");
+        jdbc.execute("ANALYZE locality");
+    }
+
+    private void resetCounters() {
+        // wrong everywhere, including the localities that have no issues
+        jdbc.update("UPDATE locality SET active_issue_count = 1, resolved_issue_count = 1, " +
+                "resolution_seconds_sum = 1, resolution_count = 1");
+    }
+
+    // RecalculationService.recalcLocalities before the set-based rewrite, counters only
+    private void oldRecalcLocalities() {
+        for (Object[] r : issueRepo.aggregateCountsByLocality()) {
+            Long localityId = (Long) r[0];
+            Long active = (Long) r[1];
+            Long resolved = (Long) r[2];
+            Long currentA = locRepo.getActiveIssueCount(localityId);
+            Long currentR = locRepo.getResolvedIssueCount(localityId);
+            long deltaA = active - (currentA == null ? 0 : currentA);
+            long deltaR = resolved - (currentR == null ? 0 : currentR);
+            if (deltaA > 0) locRepo.incrementActiveIssueCount(localityId, deltaA);
+            else if (deltaA < 0) locRepo.decrementActiveIssueCount(localityId, -deltaA);
+            if (deltaR > 0) locRepo.incrementResolvedIssueCount(localityId, deltaR);
+            else if (deltaR < 0) locRepo.decrementResolvedIssueCount(localityId, -deltaR);
+        }
+    }
+
+    private static long time(Runnable work) {
+        long start = System.nanoTime();
+        work.run();
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.sih.service;
+
+import com.example.sih.repository.CityRepository;
+import com.example.sih.repository.DepartmentRepository;
+import com.example.sih.repository.LocalityRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReferenceDataCacheTests {
+
+    private CityRepository cities;
+    private LocalityRepository localities;
+    private DepartmentRepository departments;
+
+    @BeforeEach
+    void mocks() {
+        cities = mock(CityRepository.class);
+        localities = mock(LocalityRepository.class);
+        departments = mock(DepartmentRepository.class);
+        when(localities.findAllCityIds()).thenReturn(List.of());
+        when(departments.findCategoryAssignments()).thenReturn(List.of());
+    }
+
+    @Test
+    void snapshotIsReusedWithinTheTtl() {
+        when(cities.findAllIds()).thenReturn(List.of(1L));
+        ReferenceDataCache cache = new ReferenceDataCache(cities, localities, departments, 60_000);
+
+        cache.requireCity(1L);
+        cache.requireCity(1L);
+
+        verify(cities, times(1)).findAllIds();
+    }
+
+    @Test
+    void expiredSnapshotSeesRowsAddedOutsideTheServices() throws Exception {
+        when(cities.findAllIds()).thenReturn(List.of(1L), List.of(1L, 2L));
+        ReferenceDataCache cache = new ReferenceDataCache(cities, localities, departments, 20);
+
+        assertThatThrownBy(() -> cache.requireCity(2L)).isInstanceOf(EntityNotFoundException.class);
+        Thread.sleep(40);
+        cache.requireCity(2L);
+
+        verify(cities, times(2)).findAllIds();
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(cities.findAllIds()).thenAnswer(inv -> {
+            started.countDown();
+            release.await();
+            return List.of(1L);
+        });
+        ReferenceDataCache cache = new ReferenceDataCache(cities, localities, departments, 60_000);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> calls = new ArrayList<>();
+            calls.add(pool.submit(() -> cache.requireCity(1L)));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            for (int i = 0; i < 7; i++) calls.add(pool.submit(() -> cache.requireCity(1L)));
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<?> call : calls) call.get(5, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        verify(cities, times(1)).findAllIds();
+    }
+
+    @Test
+    void expiredSnapshotIsServedWhileOneCallerReloads() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(cities.findAllIds()).thenReturn(List.of(1L)).thenAnswer(inv -> {
+            started.countDown();
+            release.await();
+            return List.of(1L, 2L);
+        });
+        ReferenceDataCache cache = new ReferenceDataCache(cities, localities, departments, 20);
+        cache.requireCity(1L);
+        Thread.sleep(40);
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> reload = pool.submit(() -> cache.requireCity(2L));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // the old snapshot answers without waiting for the reload
+            cache.requireCity(1L);
+            assertThatThrownBy(() -> cache.requireCity(2L)).isInstanceOf(EntityNotFoundException.class);
+
+            release.countDown();
+            reload.get(5, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+        cache.requireCity(2L);
+        verify(cities, times(2)).findAllIds();
+    }
+
+    @Test
+    void invalidationDuringALoadStartsAFreshOne() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(cities.findAllIds()).thenAnswer(inv -> {
+            started.countDown();
+            release.await();
+            return List.of(1L);
+        }).thenReturn(List.of(1L, 2L));
+        ReferenceDataCache cache = new ReferenceDataCache(cities, localities, departments, 60_000);
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> stale = pool.submit(() -> cache.requireCity(1L));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // city 2 was created while the first load was reading
+            cache.invalidate();
+            cache.requireCity(2L);
+
+            release.countDown();
+            stale.get(5, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+        // the load that raced with the invalidation was not published
+        cache.requireCity(2L);
+        verify(cities, times(2)).findAllIds();
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.sih.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class GeoGridTests {
+
+    @Test
+    void cellKeyIsRowTimesColumnsPlusColumn() {
+        assertThat(GeoGrid.COLUMNS).isEqualTo(72_000);
+        assertThat(GeoGrid.cellOf(-90, -180)).isZero();
+        // same arithmetic as the grid_cell expression in data.sql
+        double lat = 23.3441;
+        double lon = 85.3096;
+        long expected = (long) Math.floor((lat + 90) / 0.005) * 72_000 + (long) Math.floor((lon + 180) / 0.005);
+        assertThat(GeoGrid.cellOf(lat, lon)).isEqualTo(expected);
+    }
+
+    @Test
+    void pointsInTheSameCellShareAKey() {
+        assertThat(GeoGrid.cellOf(23.3401, 85.3001)).isEqualTo(GeoGrid.cellOf(23.3449, 85.3049));
+        assertThat(GeoGrid.cellOf(23.3449, 85.3049)).isNotEqualTo(GeoGrid.cellOf(23.3451, 85.3049));
+    }
+
+    @Test
+    void searchCoversTheCellAndItsNeighbours() {
+        double lat = 23.3425;
+        double lon = 85.3025;
+        long centre = GeoGrid.cellOf(lat, lon);
+        List<Long> cells = GeoGrid.cellsWithin(lat, lon, 500);
+
+        assertThat(cells).hasSize(9).contains(centre, centre - 1, centre + 1,
+                centre - GeoGrid.COLUMNS, centre + GeoGrid.COLUMNS);
+        // every point within the radius lands in one of the returned cells
+        for (int bearing = 0; bearing < 360; bearing += 15) {
+            double dLat = 499 * Math.cos(Math.toRadians(bearing)) / 111_320.0;
+            double dLon = 499 * Math.sin(Math.toRadians(bearing)) / (111_320.0 * Math.cos(Math.toRadians(lat)));
+            assertThat(cells).contains(GeoGrid.cellOf(lat + dLat, lon + dLon));
+        }
+    }
+
+    @Test
+    void searchWrapsAroundTheAntimeridian() {
+        List<Long> cells = GeoGrid.cellsWithin(10, 179.999, 500);
+        assertThat(cells).contains(GeoGrid.cellOf(10, 179.999), GeoGrid.cellOf(10, -179.999));
+        assertThat(cells).allSatisfy(c -> assertThat(c).isNotNegative());
+    }
+
+    @Test
+    void haversineMatchesKnownDistances() {
+        // one degree of latitude is about 111.2 km on the mean-radius sphere
+        assertThat(GeoGrid.haversineMeters(0, 0, 1, 0)).isCloseTo(111_195, within(1.0));
+        assertThat(GeoGrid.haversineMeters(23.34, 85.30, 23.34, 85.30)).isZero();
+        assertThat(GeoGrid.haversineMeters(10, 179.9995, 10, -179.9995)).isCloseTo(109.5, within(0.5));
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.sih.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class LatencyHistogramTests {
+
+    @Test
+    void bucketBoundaries() {
+        assertThat(LatencyHistogram.bucketOf(0)).isZero();
+        assertThat(LatencyHistogram.bucketOf(59)).isZero();
+        assertThat(LatencyHistogram.bucketOf(60)).isEqualTo(1);
+        assertThat(LatencyHistogram.bucketOf(65)).isEqualTo(1);
+        assertThat(LatencyHistogram.bucketOf(66)).isEqualTo(2);
+        assertThat(LatencyHistogram.bucketOf(Long.MAX_VALUE)).isEqualTo(LatencyHistogram.BUCKETS - 1);
+    }
+
+    @Test
+    void bucketsAreMonotonic() {
+        int previous = 0;
+        for (long s = 0; s < 10_000_000; s += 37) {
+            int bucket = LatencyHistogram.bucketOf(s);
+            assertThat(bucket).isGreaterThanOrEqualTo(previous);
+            previous = bucket;
+        }
+    }
+
+    @Test
+    void representativeIsWithinFivePercentOfAnyValueInItsBucket() {
+        for (long s = 60; s < 100_000_000; s = s * 101 / 100 + 1) {
+            double r = LatencyHistogram.representative(LatencyHistogram.bucketOf(s));
+            assertThat(Math.abs(r - s) / s).isLessThan(0.05);
+        }
+    }
+
+    @Test
+    void quantiles() {
+        long[] counts = new long[LatencyHistogram.BUCKETS];
+        assertThat(LatencyHistogram.quantileSeconds(counts, 0.5)).isNull();
+
+        counts[LatencyHistogram.bucketOf(3_600)] = 90;
+        counts[LatencyHistogram.bucketOf(86_400)] = 10;
+        assertThat(LatencyHistogram.quantileSeconds(counts, 0.5)).isCloseTo(3_600, within(3_600 * 0.05));
+        assertThat(LatencyHistogram.quantileSeconds(counts, 0.9)).isCloseTo(3_600, within(3_600 * 0.05));
+        assertThat(LatencyHistogram.quantileSeconds(counts, 0.99)).isCloseTo(86_400, within(86_400 * 0.05));
+    }
+}